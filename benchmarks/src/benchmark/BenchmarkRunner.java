@@ -0,0 +1,23 @@
+package benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Запуск бенчмарков из IDE. Аргумент - регулярное выражение для отбора бенчмарков,
+ * например "TaskManagerBenchmark.createTask". Результаты сохраняются в jmh-result.json
+ * для сравнения до и после изменений.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : TaskManagerBenchmark.class.getSimpleName();
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(org.openjdk.jmh.results.format.ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
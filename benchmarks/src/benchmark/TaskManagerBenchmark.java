@@ -0,0 +1,158 @@
+package benchmark;
+
+import manager.Managers;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути InMemoryTaskManager. Хранилище заполняется задачами и подзадачами поровну,
+ * доля задач со временем начала задаётся scheduledFraction. Запланированные задачи занимают
+ * слоты [i * 10, i * 10 + 5) минут, поэтому промежутки между ними всегда свободны.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TaskManagerBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int SUBTASKS_PER_EPIC = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int storeSize;
+
+    @Param({"0.0", "0.5", "1.0"})
+    public double scheduledFraction;
+
+    private TaskManager manager;
+    private int[] taskIds;
+    private int[] epicIds;
+    private Subtask[] subtasks;
+    private int slots;
+    private int cursor;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = Managers.getDefault();
+        random = new Random(42);
+
+        int taskCount = storeSize / 2;
+        int subtaskCount = storeSize - taskCount;
+        int epicCount = Math.max(1, subtaskCount / SUBTASKS_PER_EPIC);
+
+        taskIds = new int[taskCount];
+        epicIds = new int[epicCount];
+        subtasks = new Subtask[subtaskCount];
+
+        for (int i = 0; i < epicCount; i++) {
+            epicIds[i] = manager.createEpic(new Epic("Epic" + i, "Desc")).getId();
+        }
+        for (int i = 0; i < taskCount; i++) {
+            Task task = new Task("Task" + i, "Desc");
+            schedule(task);
+            taskIds[i] = manager.createTask(task).getId();
+        }
+        for (int i = 0; i < subtaskCount; i++) {
+            Subtask subtask = new Subtask("Sub" + i, "Desc", epicIds[i % epicCount]);
+            schedule(subtask);
+            subtasks[i] = manager.createSubtask(subtask);
+        }
+    }
+
+    private void schedule(Task task) {
+        if (random.nextDouble() < scheduledFraction) {
+            task.setStartTime(START.plusMinutes(slots * 10L));
+            task.setDuration(Duration.ofMinutes(5));
+        }
+        slots++;
+    }
+
+    // Свободный промежуток между двумя слотами, пересечения нет, но проверка проходит по всему индексу
+    private LocalDateTime nextGap() {
+        cursor = (cursor + 1) % slots;
+        return START.plusMinutes(cursor * 10L + 6);
+    }
+
+    @Benchmark
+    public boolean createTask() {
+        Task task = new Task("New", "Desc");
+        if (random.nextDouble() < scheduledFraction) {
+            task.setStartTime(nextGap());
+            task.setDuration(Duration.ofMinutes(2));
+        }
+        Task created = manager.createTask(task);
+        return created != null && manager.deleteTask(created.getId());
+    }
+
+    @Benchmark
+    public boolean createSubtask() {
+        Subtask subtask = new Subtask("New", "Desc", epicIds[random.nextInt(epicIds.length)]);
+        if (random.nextDouble() < scheduledFraction) {
+            subtask.setStartTime(nextGap());
+            subtask.setDuration(Duration.ofMinutes(2));
+        }
+        Subtask created = manager.createSubtask(subtask);
+        return created != null && manager.deleteSubtask(created.getId());
+    }
+
+    @Benchmark
+    public Task getTaskWithHistory() {
+        return manager.getTask(taskIds[random.nextInt(taskIds.length)]);
+    }
+
+    @Benchmark
+    public boolean updateSubtask() {
+        Subtask subtask = subtasks[random.nextInt(subtasks.length)];
+        subtask.setStatus(subtask.getStatus() == TaskStatus.DONE ? TaskStatus.IN_PROGRESS : TaskStatus.DONE);
+        return manager.updateSubtask(subtask);
+    }
+
+    @Benchmark
+    public List<Task> getPrioritizedTasks() {
+        return manager.getPrioritizedTasks();
+    }
+
+    @Benchmark
+    public List<Subtask> getSubtasksByEpic() {
+        return manager.getSubtasksByEpic(epicIds[random.nextInt(epicIds.length)]);
+    }
+
+    /**
+     * Каскадное удаление эпика с подзадачами. Эпик создаётся заново перед каждым вызовом.
+     */
+    @State(Scope.Thread)
+    public static class EpicToDelete {
+        int epicId;
+
+        @Setup(Level.Invocation)
+        public void createEpic(TaskManagerBenchmark benchmark) {
+            epicId = benchmark.manager.createEpic(new Epic("Cascade", "Desc")).getId();
+            for (int i = 0; i < SUBTASKS_PER_EPIC; i++) {
+                Subtask subtask = new Subtask("Cascade" + i, "Desc", epicId);
+                if (benchmark.random.nextDouble() < benchmark.scheduledFraction) {
+                    subtask.setStartTime(benchmark.nextGap());
+                    subtask.setDuration(Duration.ofMinutes(2));
+                }
+                benchmark.manager.createSubtask(subtask);
+            }
+        }
+    }
+
+    @Benchmark
+    public void deleteEpicCascade(EpicToDelete epic, Blackhole blackhole) {
+        blackhole.consume(manager.deleteEpic(epic.epicId));
+    }
+}
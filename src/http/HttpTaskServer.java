@@ -4,21 +4,36 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.sun.net.httpserver.HttpServer;
 import http.handler.*;
+import manager.Managers;
 import manager.TaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class HttpTaskServer {
     private static final int PORT = 8080;
+    // Сколько последних просмотров хранит /history; можно переопределить первым аргументом main
+    public static final int DEFAULT_HISTORY_SIZE = 1_000;
     private final HttpServer server;
     private final TaskManager taskManager;
+    private final ExecutorService executor;
     private final Gson gson;
 
     public HttpTaskServer(TaskManager taskManager) throws IOException {
-        this.taskManager = taskManager;
+        this(taskManager, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    // Для ограниченного пула платформенных потоков можно передать, например, Executors.newFixedThreadPool(n)
+    public HttpTaskServer(TaskManager taskManager, ExecutorService executor) throws IOException {
+        // Запросы обрабатываются параллельно, поэтому менеджер оборачивается в потокобезопасную обёртку;
+        // чтения списков в ней не ждут друг друга
+        this.taskManager = Managers.getConcurrent(taskManager);
+        this.executor = executor;
 
         this.gson = new GsonBuilder()
                 .registerTypeAdapter(Duration.class, new com.google.gson.TypeAdapter<Duration>() {
@@ -75,12 +90,15 @@ public class HttpTaskServer {
                 .create();
 
         this.server = HttpServer.create(new InetSocketAddress(PORT), 0);
-
-        server.createContext("/tasks", new TaskHandler(taskManager, gson));
-        server.createContext("/subtasks", new SubtaskHandler(taskManager, gson));
-        server.createContext("/epics", new EpicHandler(taskManager, gson));
-        server.createContext("/history", new HistoryHandler(taskManager, gson));
-        server.createContext("/prioritized", new PrioritizedHandler(taskManager, gson));
+        server.setExecutor(executor);
+
+        server.createContext("/tasks", new TaskHandler(this.taskManager, gson));
+        server.createContext("/subtasks", new SubtaskHandler(this.taskManager, gson));
+        server.createContext("/epics", new EpicHandler(this.taskManager, gson));
+        server.createContext("/history", new HistoryHandler(this.taskManager, gson));
+        server.createContext("/prioritized", new PrioritizedHandler(this.taskManager, gson));
+        server.createContext("/search", new SearchHandler(this.taskManager, gson));
+        server.createContext("/batch", new BatchHandler(this.taskManager, gson));
     }
 
     public void start() {
@@ -91,6 +109,19 @@ public class HttpTaskServer {
 
     public void stop() {
         server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (taskManager instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) taskManager).close();
+            } catch (Exception e) {
+                System.err.println("Ошибка при закрытии менеджера задач: " + e.getMessage());
+            }
+        }
         System.out.println("HTTP-сервер остановлен.");
     }
 
@@ -100,7 +131,8 @@ public class HttpTaskServer {
 
     public static void main(String[] args) {
         try {
-            TaskManager taskManager = manager.Managers.getDefault();
+            int historySize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_HISTORY_SIZE;
+            TaskManager taskManager = Managers.getDefault(historySize);
             if (taskManager == null) {
                 System.err.println("Ошибка: Не удалось получить экземпляр TaskManager.");
                 return;
@@ -2,14 +2,31 @@
 package http.handler;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
+import model.Task;
+import model.TaskStatus;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 public class BaseHttpHandler {
     protected final Gson gson;
+    // Отличает ETag этого запуска сервера: после перезапуска счётчики версий начинаются заново
+    private final String etagPrefix = Long.toHexString(ThreadLocalRandom.current().nextLong());
 
     public BaseHttpHandler(Gson gson) {
         this.gson = gson;
@@ -25,6 +42,26 @@ public class BaseHttpHandler {
         h.close();
     }
 
+    // Список пишется поэлементно прямо в тело ответа (chunked), без построения всей строки JSON в памяти
+    protected void sendJsonStream(HttpExchange h, Iterable<?> items, int statusCode) throws IOException {
+        h.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        h.sendResponseHeaders(statusCode, 0);
+        try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(
+                new OutputStreamWriter(h.getResponseBody(), StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (Object item : items) {
+                if (item == null) {
+                    writer.nullValue();
+                } else {
+                    gson.toJson(item, item.getClass(), writer);
+                }
+            }
+            writer.endArray();
+        } finally {
+            h.close();
+        }
+    }
+
     protected void sendText(HttpExchange h, String text, int statusCode) throws IOException {
         byte[] resp = text.getBytes(StandardCharsets.UTF_8);
         h.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
@@ -50,6 +87,11 @@ public class BaseHttpHandler {
 
     protected void sendInternalError(HttpExchange h, Exception e) throws IOException {
         e.printStackTrace();
+        // Потоковый ответ мог упасть после отправки заголовков: второй раз их не отправить, только оборвать
+        if (h.getResponseCode() != -1) {
+            h.close();
+            return;
+        }
         sendText(h, "Внутренняя ошибка сервера", 500);
     }
 
@@ -61,6 +103,121 @@ public class BaseHttpHandler {
     }
 
 
+    // Параметры строки запроса; при повторе имени остаётся последнее значение
+    protected Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) return params;
+
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+
+    // Фильтр ?status=; пустой Optional, если параметра нет. Недопустимое значение - IllegalArgumentException
+    protected Optional<TaskStatus> parseStatusFilter(HttpExchange exchange) {
+        String status = parseQuery(exchange).get("status");
+        if (status == null) return Optional.empty();
+        return Optional.of(TaskStatus.valueOf(status.toUpperCase(Locale.ROOT)));
+    }
+
+
+    /**
+     * Условный GET: ставит ETag по версии коллекции и, если он совпал с If-None-Match, отвечает 304
+     * без тела. Версию нужно взять до чтения данных: тогда при гонке ETag устареет, но не опередит тело.
+     */
+    protected boolean sendNotModified(HttpExchange h, long version) throws IOException {
+        String etag = "\"" + etagPrefix + "-" + version + "\"";
+        h.getResponseHeaders().set("ETag", etag);
+        String ifNoneMatch = h.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !matchesEtag(ifNoneMatch, etag)) return false;
+
+        h.sendResponseHeaders(304, -1);
+        h.close();
+        return true;
+    }
+
+    // If-None-Match: "*" или список меток через запятую, слабые метки W/ сравниваются без префикса
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+
+    protected boolean isPageRequest(Map<String, String> query) {
+        return query.containsKey("limit") || query.containsKey("after");
+    }
+
+
+    /**
+     * Страница по возрастанию id: ?limit=50&after=120. Лишняя запись показывает, что есть
+     * следующая страница; ссылка на неё с id последней записи уходит в заголовке Link.
+     * version - версия коллекции для условного GET, проверяется после разбора параметров.
+     */
+    protected <T extends Task> void sendPage(HttpExchange h, Map<String, String> query, long version, Page<T> page)
+            throws IOException {
+        int after;
+        int limit;
+        try {
+            after = query.containsKey("after") ? Integer.parseInt(query.get("after")) : 0;
+        } catch (NumberFormatException e) {
+            sendText(h, "Параметр after должен быть id записи", 400);
+            return;
+        }
+        try {
+            limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : Integer.MAX_VALUE;
+        } catch (NumberFormatException e) {
+            limit = 0;
+        }
+        if (limit < 1) {
+            sendText(h, "Параметр limit должен быть положительным числом", 400);
+            return;
+        }
+        if (sendNotModified(h, version)) return;
+
+        List<T> items = page.fetch(after, limit == Integer.MAX_VALUE ? limit : limit + 1);
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            h.getResponseHeaders().add("Link",
+                    "<" + nextPageUri(h, query, items.get(limit - 1).getId(), limit) + ">; rel=\"next\"");
+        }
+        sendJsonStream(h, items, 200);
+    }
+
+    // Страница отфильтрованного списка, у которого нет упорядоченного по id представления
+    protected static <T extends Task> List<T> pageOf(List<T> items, int afterId, int limit) {
+        return items.stream()
+                .filter(item -> item.getId() > afterId)
+                .sorted(Comparator.comparingInt(Task::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static String nextPageUri(HttpExchange h, Map<String, String> query, int afterId, int limit) {
+        StringBuilder uri = new StringBuilder(h.getRequestURI().getPath()).append('?');
+        if (query.containsKey("status")) {
+            uri.append("status=").append(URLEncoder.encode(query.get("status"), StandardCharsets.UTF_8)).append('&');
+        }
+        return uri.append("limit=").append(limit).append("&after=").append(afterId).toString();
+    }
+
+
+    @FunctionalInterface
+    protected interface Page<T> {
+        List<T> fetch(int afterId, int limit);
+    }
+
+
     protected int extractIdFromPath(String path) throws NumberFormatException {
         String[] pathParts = path.split("/");
         if (pathParts.length >= 3) {
@@ -0,0 +1,104 @@
+package http.handler;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import manager.BatchOperation;
+import manager.BatchResult;
+import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchHandler extends BaseHttpHandler implements HttpHandler {
+    private final TaskManager taskManager;
+
+    public BatchHandler(TaskManager taskManager, Gson gson) {
+        super(gson);
+        this.taskManager = taskManager;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+
+            if (!"/batch".equals(path)) {
+                sendNotFound(exchange);
+            } else if ("POST".equals(method)) {
+                handleBatch(exchange);
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+                exchange.close();
+            }
+        } catch (Exception e) {
+            sendInternalError(exchange, e);
+        }
+    }
+
+    // POST /batch [{"action": "CREATE", "type": "SUBTASK", "task": {...}}, {"action": "DELETE", "id": 3}]
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        List<BatchItem> items;
+        List<BatchOperation> operations = new ArrayList<>();
+        try {
+            items = gson.fromJson(extractRequestBody(exchange), new TypeToken<List<BatchItem>>() {
+            }.getType());
+            if (items == null) {
+                sendText(exchange, "Тело запроса должно содержать список операций", 400);
+                return;
+            }
+            for (BatchItem item : items) {
+                operations.add(toOperation(item));
+            }
+        } catch (com.google.gson.JsonParseException e) {
+            sendText(exchange, "Некорректный формат JSON", 400);
+            return;
+        }
+
+        List<BatchResult> results = taskManager.applyBatch(operations);
+        sendJsonStream(exchange, results, 200);
+    }
+
+    // Неполная операция или операция с недопустимым id становится null и получает в ответе статус INVALID
+    private BatchOperation toOperation(BatchItem item) {
+        if (item == null || item.action == null) return null;
+        if (item.id != null && item.id < 1) return null;
+        if (item.action == BatchOperation.Action.DELETE) {
+            return item.id != null ? BatchOperation.delete(item.id) : null;
+        }
+        if (item.task == null) return null;
+
+        Task task;
+        switch (item.type != null ? item.type : TaskType.TASK) {
+            case EPIC:
+                task = gson.fromJson(item.task, Epic.class);
+                break;
+            case SUBTASK:
+                task = gson.fromJson(item.task, Subtask.class);
+                break;
+            default:
+                task = gson.fromJson(item.task, Task.class);
+                break;
+        }
+        if (item.action == BatchOperation.Action.CREATE) {
+            return BatchOperation.create(task);
+        }
+        if (item.id != null) task.setId(item.id);
+        return BatchOperation.update(task);
+    }
+
+    private static class BatchItem {
+        BatchOperation.Action action;
+        TaskType type;
+        Integer id;
+        JsonObject task;
+    }
+}
@@ -4,12 +4,16 @@ package http.handler;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import manager.TaskCollection;
 import manager.TaskManager;
 import model.Epic;
 import model.Subtask;
+import model.TaskStatus;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public class EpicHandler extends BaseHttpHandler implements HttpHandler {
     private final TaskManager taskManager;
@@ -79,8 +83,25 @@ public class EpicHandler extends BaseHttpHandler implements HttpHandler {
     }
 
     private void handleGetAllEpics(HttpExchange exchange) throws IOException {
-        List<Epic> epics = taskManager.getAllEpics();
-        sendText(exchange, epics, 200);
+        Optional<TaskStatus> status;
+        try {
+            status = parseStatusFilter(exchange);
+        } catch (IllegalArgumentException e) {
+            sendText(exchange, "Неизвестный статус: допустимы NEW, IN_PROGRESS, DONE", 400);
+            return;
+        }
+        long version = taskManager.getVersion(TaskCollection.EPICS);
+        Map<String, String> query = parseQuery(exchange);
+        if (isPageRequest(query)) {
+            sendPage(exchange, query, version, status.isPresent()
+                    ? (after, limit) -> pageOf(taskManager.getEpicsByStatus(status.get()), after, limit)
+                    : taskManager::getEpicsAfter);
+            return;
+        }
+        if (sendNotModified(exchange, version)) return;
+
+        List<Epic> epics = status.isPresent() ? taskManager.getEpicsByStatus(status.get()) : taskManager.getAllEpics();
+        sendJsonStream(exchange, epics, 200);
     }
 
     private void handleGetEpicById(HttpExchange exchange, String path) throws IOException {
@@ -109,13 +130,12 @@ public class EpicHandler extends BaseHttpHandler implements HttpHandler {
             String[] pathParts = path.split("/");
             if (pathParts.length == 4) {
                 int epicId = extractIdFromPath(path);
-                Epic epic = taskManager.getEpic(epicId);
-                if (epic == null) {
+                if (taskManager.peekEpic(epicId) == null) {
                     sendNotFound(exchange);
                     return;
                 }
                 List<Subtask> subtasks = taskManager.getSubtasksByEpic(epicId);
-                sendText(exchange, subtasks, 200);
+                sendJsonStream(exchange, subtasks, 200);
             } else {
                 sendNotFound(exchange);
             }
@@ -159,7 +179,7 @@ public class EpicHandler extends BaseHttpHandler implements HttpHandler {
                 if (taskManager.updateEpic(epic)) {
                     taskManager.updateEpicStatus(epic.getId());
                     taskManager.updateEpicTime(epic.getId());
-                    resultEpic = taskManager.getEpic(epic.getId());
+                    resultEpic = taskManager.peekEpic(epic.getId());
                     sendText(exchange, resultEpic, 200);
                 } else {
                     sendNotFound(exchange);
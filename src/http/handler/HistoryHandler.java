@@ -3,12 +3,11 @@ package http.handler;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import manager.TaskCollection;
 import manager.TaskManager;
 import model.Task;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
@@ -37,9 +36,9 @@ public class HistoryHandler extends BaseHttpHandler implements HttpHandler {
     }
 
     private void handleGetHistory(HttpExchange exchange) throws IOException {
+        if (sendNotModified(exchange, taskManager.getVersion(TaskCollection.HISTORY))) return;
+
         List<Task> historyFromManager = taskManager.getHistory();
-        List<Task> reversedHistory = new ArrayList<>(historyFromManager);
-        Collections.reverse(reversedHistory);
-        sendText(exchange, reversedHistory, 200);
+        sendJsonStream(exchange, historyFromManager.reversed(), 200);
     }
 }
\ No newline at end of file
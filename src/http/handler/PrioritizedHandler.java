@@ -1,14 +1,25 @@
-
 package http.handler;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import manager.TaskCollection;
 import manager.TaskManager;
 import model.Task;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
 public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
     private final TaskManager taskManager;
@@ -27,6 +38,12 @@ public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
 
             if ("GET".equals(method) && "/prioritized".equals(path)) {
                 handleGetPrioritizedTasks(exchange);
+            } else if ("GET".equals(method) && "/prioritized/conflicts".equals(path)) {
+                handleGetConflicts(exchange);
+            } else if ("GET".equals(method) && "/prioritized/slot".equals(path)) {
+                handleFindFreeSlot(exchange);
+            } else if ("POST".equals(method) && "/prioritized/schedule".equals(path)) {
+                handleAutoSchedule(exchange);
             } else {
 
                 exchange.sendResponseHeaders(405, -1);
@@ -38,9 +55,133 @@ public class PrioritizedHandler extends BaseHttpHandler implements HttpHandler {
     }
 
     private void handleGetPrioritizedTasks(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange);
+        if (query.isEmpty()) {
+            if (sendNotModified(exchange, taskManager.getVersion(TaskCollection.PRIORITIZED))) return;
+            List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+            sendJsonStream(exchange, prioritizedTasks, 200); // 200 OK
+            return;
+        }
+
+        LocalDateTime from;
+        LocalDateTime to;
+        int limit;
+        try {
+            from = query.containsKey("from") ? LocalDateTime.parse(query.get("from")) : null;
+            to = query.containsKey("to") ? LocalDateTime.parse(query.get("to")) : null;
+        } catch (DateTimeParseException e) {
+            sendText(exchange, "Неверный формат времени, ожидается 2024-01-01T10:00", 400);
+            return;
+        }
+        try {
+            limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : Integer.MAX_VALUE;
+        } catch (NumberFormatException e) {
+            limit = 0;
+        }
+        if (limit < 1) {
+            sendText(exchange, "Параметр limit должен быть положительным числом", 400);
+            return;
+        }
+        if (sendNotModified(exchange, taskManager.getVersion(TaskCollection.PRIORITIZED))) return;
+
+        // Лишняя задача показывает, есть ли следующая страница, и задаёт её начало
+        List<Task> window = taskManager.getPrioritizedTasks(from, to, limit == Integer.MAX_VALUE ? limit : limit + 1);
+        if (window.size() > limit) {
+            LocalDateTime nextFrom = window.get(limit).getStartTime();
+            window = window.subList(0, limit);
+            exchange.getResponseHeaders().add("Link", "<" + nextPageUri(nextFrom, to, limit) + ">; rel=\"next\"");
+        }
+        sendJsonStream(exchange, window, 200);
+    }
+
+    // GET /prioritized/slot?from=2024-01-01T10:00&duration=PT30M
+    private void handleFindFreeSlot(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange);
+        LocalDateTime from;
+        Duration duration;
+        try {
+            from = query.containsKey("from") ? LocalDateTime.parse(query.get("from")) : defaultFrom();
+            duration = Duration.parse(query.getOrDefault("duration", ""));
+        } catch (DateTimeParseException e) {
+            sendText(exchange, "Нужны параметры from (2024-01-01T10:00) и duration (PT30M)", 400);
+            return;
+        }
+        if (duration.isNegative()) {
+            sendText(exchange, "Длительность не может быть отрицательной", 400);
+            return;
+        }
+        sendText(exchange, Map.of("startTime", taskManager.findFreeSlot(from, duration)), 200);
+    }
+
+    // GET /prioritized/conflicts: пары пишутся в ответ по мере нахождения, без списка в памяти
+    private void handleGetConflicts(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            taskManager.forEachConflict((first, second) -> {
+                try {
+                    writeConflict(writer, first, second);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.endArray();
+        } catch (UncheckedIOException e) {
+            // Клиент закрыл соединение: заголовки уже отправлены, ответить ошибкой нельзя
+            System.err.println("Ответ /prioritized/conflicts прерван: " + e.getCause().getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
 
-        List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+    private void writeConflict(JsonWriter writer, Task first, Task second) throws IOException {
+        LocalDateTime firstEnd = first.getEndTime() != null ? first.getEndTime() : first.getStartTime();
+        LocalDateTime secondEnd = second.getEndTime() != null ? second.getEndTime() : second.getStartTime();
+        LocalDateTime overlapEnd = firstEnd.isBefore(secondEnd) ? firstEnd : secondEnd;
+        writer.beginObject();
+        writer.name("first").value(first.getId());
+        writer.name("second").value(second.getId());
+        writer.name("overlapStart");
+        gson.toJson(second.getStartTime(), LocalDateTime.class, writer);
+        writer.name("overlapEnd");
+        gson.toJson(overlapEnd, LocalDateTime.class, writer);
+        writer.endObject();
+    }
 
-        sendText(exchange, prioritizedTasks, 200); // 200 OK
+    // POST /prioritized/schedule {"ids": [1, 2], "from": "2024-01-01T10:00"}
+    private void handleAutoSchedule(HttpExchange exchange) throws IOException {
+        ScheduleRequest request;
+        try {
+            request = gson.fromJson(extractRequestBody(exchange), ScheduleRequest.class);
+        } catch (com.google.gson.JsonParseException e) {
+            sendText(exchange, "Некорректный формат JSON", 400);
+            return;
+        }
+        if (request == null || request.ids == null || request.ids.contains(null)) {
+            sendText(exchange, "Тело запроса должно содержать список ids", 400);
+            return;
+        }
+        LocalDateTime from = request.from != null ? request.from : defaultFrom();
+        sendJsonStream(exchange, taskManager.autoSchedule(request.ids, from), 200);
+    }
+
+    private static LocalDateTime defaultFrom() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private static class ScheduleRequest {
+        List<Integer> ids;
+        LocalDateTime from;
+    }
+
+    private static String nextPageUri(LocalDateTime from, LocalDateTime to, int limit) {
+        StringBuilder uri = new StringBuilder("/prioritized?from=")
+                .append(URLEncoder.encode(from.toString(), StandardCharsets.UTF_8));
+        if (to != null) {
+            uri.append("&to=").append(URLEncoder.encode(to.toString(), StandardCharsets.UTF_8));
+        }
+        return uri.append("&limit=").append(limit).toString();
     }
-}
\ No newline at end of file
+}
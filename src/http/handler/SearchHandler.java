@@ -0,0 +1,49 @@
+package http.handler;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import manager.TaskManager;
+import model.Task;
+
+import java.io.IOException;
+import java.util.List;
+
+public class SearchHandler extends BaseHttpHandler implements HttpHandler {
+    private final TaskManager taskManager;
+
+    public SearchHandler(TaskManager taskManager, Gson gson) {
+        super(gson);
+        this.taskManager = taskManager;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+
+            if (!"/search".equals(path)) {
+                sendNotFound(exchange);
+            } else if ("GET".equals(method)) {
+                handleSearch(exchange);
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+                exchange.close();
+            }
+        } catch (Exception e) {
+            sendInternalError(exchange, e);
+        }
+    }
+
+    // GET /search?q=отчёт квартал* OR релиз
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        String query = parseQuery(exchange).get("q");
+        if (query == null || query.isBlank()) {
+            sendText(exchange, "Нужен параметр q", 400);
+            return;
+        }
+        List<Task> found = taskManager.search(query);
+        sendJsonStream(exchange, found, 200);
+    }
+}
@@ -3,12 +3,16 @@ package http.handler;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import manager.TaskCollection;
 import manager.TaskManager;
 import model.Epic;
 import model.Subtask;
+import model.TaskStatus;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public class SubtaskHandler extends BaseHttpHandler implements HttpHandler {
     private final TaskManager taskManager;
@@ -86,8 +90,25 @@ public class SubtaskHandler extends BaseHttpHandler implements HttpHandler {
     }
 
     private void handleGetAllSubtasks(HttpExchange exchange) throws IOException {
-        List<Subtask> subtasks = taskManager.getAllSubtasks();
-        sendText(exchange, subtasks, 200);
+        Optional<TaskStatus> status;
+        try {
+            status = parseStatusFilter(exchange);
+        } catch (IllegalArgumentException e) {
+            sendText(exchange, "Неизвестный статус: допустимы NEW, IN_PROGRESS, DONE", 400);
+            return;
+        }
+        long version = taskManager.getVersion(TaskCollection.SUBTASKS);
+        Map<String, String> query = parseQuery(exchange);
+        if (isPageRequest(query)) {
+            sendPage(exchange, query, version, status.isPresent()
+                    ? (after, limit) -> pageOf(taskManager.getSubtasksByStatus(status.get()), after, limit)
+                    : taskManager::getSubtasksAfter);
+            return;
+        }
+        if (sendNotModified(exchange, version)) return;
+
+        List<Subtask> subtasks = status.isPresent() ? taskManager.getSubtasksByStatus(status.get()) : taskManager.getAllSubtasks();
+        sendJsonStream(exchange, subtasks, 200);
     }
 
     private void handleGetSubtaskById(HttpExchange exchange, String path) throws IOException {
@@ -109,13 +130,12 @@ public class SubtaskHandler extends BaseHttpHandler implements HttpHandler {
             String[] pathParts = path.split("/");
             if (pathParts.length == 4) {
                 int epicId = Integer.parseInt(pathParts[3]);
-                Epic epic = taskManager.getEpic(epicId);
-                if (epic == null) {
+                if (taskManager.peekEpic(epicId) == null) {
                     sendNotFound(exchange);
                     return;
                 }
                 List<Subtask> subtasks = taskManager.getSubtasksByEpic(epicId);
-                sendText(exchange, subtasks, 200);
+                sendJsonStream(exchange, subtasks, 200);
             } else {
                 sendNotFound(exchange);
             }
@@ -151,13 +171,12 @@ public class SubtaskHandler extends BaseHttpHandler implements HttpHandler {
             Subtask resultSubtask;
             if (isUpdate) {
                 if (taskManager.updateSubtask(subtask)) {
-                    resultSubtask = taskManager.getSubtask(subtask.getId());
+                    resultSubtask = taskManager.peekSubtask(subtask.getId());
                     taskManager.updateEpicStatus(subtask.getEpicId());
                     taskManager.updateEpicTime(subtask.getEpicId());
                     sendText(exchange, resultSubtask, 200);
                 } else {
-                    Subtask existingSubtask = taskManager.getSubtask(subtask.getId());
-                    if (existingSubtask == null) {
+                    if (taskManager.peekSubtask(subtask.getId()) == null) {
                         sendNotFound(exchange);
                     } else {
                         sendHasInteractions(exchange);
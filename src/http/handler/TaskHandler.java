@@ -3,11 +3,15 @@ package http.handler;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import manager.TaskCollection;
 import manager.TaskManager;
 import model.Task;
+import model.TaskStatus;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public class TaskHandler extends BaseHttpHandler implements HttpHandler {
     private final TaskManager taskManager;
@@ -64,8 +68,25 @@ public class TaskHandler extends BaseHttpHandler implements HttpHandler {
     }
 
     private void handleGetAllTasks(HttpExchange exchange) throws IOException {
-        List<Task> tasks = taskManager.getAllTasks();
-        sendText(exchange, tasks, 200);
+        Optional<TaskStatus> status;
+        try {
+            status = parseStatusFilter(exchange);
+        } catch (IllegalArgumentException e) {
+            sendText(exchange, "Неизвестный статус: допустимы NEW, IN_PROGRESS, DONE", 400);
+            return;
+        }
+        long version = taskManager.getVersion(TaskCollection.TASKS);
+        Map<String, String> query = parseQuery(exchange);
+        if (isPageRequest(query)) {
+            sendPage(exchange, query, version, status.isPresent()
+                    ? (after, limit) -> pageOf(taskManager.getTasksByStatus(status.get()), after, limit)
+                    : taskManager::getTasksAfter);
+            return;
+        }
+        if (sendNotModified(exchange, version)) return;
+
+        List<Task> tasks = status.isPresent() ? taskManager.getTasksByStatus(status.get()) : taskManager.getAllTasks();
+        sendJsonStream(exchange, tasks, 200);
     }
 
     private void handleGetTaskById(HttpExchange exchange, String path) throws IOException {
@@ -120,11 +141,10 @@ public class TaskHandler extends BaseHttpHandler implements HttpHandler {
             Task resultTask;
             if (isUpdate) {
                 if (taskManager.updateTask(task)) {
-                    resultTask = taskManager.getTask(task.getId());
+                    resultTask = taskManager.peekTask(task.getId());
                     sendText(exchange, resultTask, 200);
                 } else {
-                    Task existingTask = taskManager.getTask(task.getId());
-                    if (existingTask == null) {
+                    if (taskManager.peekTask(task.getId()) == null) {
                         sendNotFound(exchange);
                     } else {
                         sendHasInteractions(exchange);
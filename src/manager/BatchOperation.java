@@ -0,0 +1,49 @@
+package manager;
+
+import model.Task;
+
+/**
+ * Операция пакета для {@link TaskManager#applyBatch}: создание или обновление задачи любого вида
+ * либо удаление по id.
+ */
+public class BatchOperation {
+    public enum Action {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    private final Action action;
+    private final Task task;
+    private final int id;
+
+    private BatchOperation(Action action, Task task, int id) {
+        this.action = action;
+        this.task = task;
+        this.id = id;
+    }
+
+    public static BatchOperation create(Task task) {
+        return new BatchOperation(Action.CREATE, task, 0);
+    }
+
+    public static BatchOperation update(Task task) {
+        return new BatchOperation(Action.UPDATE, task, task != null ? task.getId() : 0);
+    }
+
+    public static BatchOperation delete(int id) {
+        return new BatchOperation(Action.DELETE, null, id);
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,50 @@
+package manager;
+
+import model.Task;
+
+/**
+ * Итог одной операции пакета. У применённой операции task - созданная, обновлённая или удалённая задача.
+ */
+public class BatchResult {
+    public enum Status {
+        APPLIED,
+        NOT_FOUND,
+        // Пересекается с уже запланированной задачей
+        OVERLAP,
+        // Пересекается с другой задачей того же пакета
+        CONFLICT,
+        INVALID
+    }
+
+    private final Status status;
+    private final Task task;
+
+    private BatchResult(Status status, Task task) {
+        this.status = status;
+        this.task = task;
+    }
+
+    static BatchResult applied(Task task) {
+        return new BatchResult(Status.APPLIED, task);
+    }
+
+    static BatchResult of(Status status) {
+        return new BatchResult(status, null);
+    }
+
+    BatchResult copy() {
+        return task != null ? new BatchResult(status, task.copy()) : this;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+}
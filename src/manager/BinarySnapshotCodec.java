@@ -0,0 +1,297 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+import model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Двоичный формат снимка. Заголовок: сигнатура KBNB и байт версии. Дальше история (число id и сами id),
+ * число записей и записи: тип и статус по одному байту, id varint, строки как varint-длина и UTF-8,
+ * время начала в минутах от эпохи (zigzag varint), длительность в минутах varint, у подзадачи id эпика.
+ * Наличие времени и длительности отмечается битами в байте флагов; секунды, если они есть, пишутся отдельно,
+ * чтобы преобразование из CSV и обратно ничего не теряло.
+ */
+class BinarySnapshotCodec {
+    static final byte[] MAGIC = {'K', 'B', 'N', 'B'};
+    static final int VERSION = 1;
+
+    private static final int HAS_START = 1;
+    private static final int HAS_DURATION = 1 << 1;
+    private static final int HAS_SUB_MINUTE = 1 << 2;
+    // Тип, статус, id, длины заголовка и описания, флаги - хотя бы по байту
+    private static final int MIN_TASK_BYTES = 6;
+
+    private BinarySnapshotCodec() {
+    }
+
+    static boolean isBinary(byte[] data) {
+        if (data.length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    static byte[] encode(TaskManager manager) {
+        Output out = new Output();
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+
+        List<Task> history = manager.getHistory();
+        out.writeVarInt(history.size());
+        for (Task task : history) {
+            out.writeVarInt(task.getId());
+        }
+
+        List<Task> tasks = manager.getAllTasks();
+        List<Epic> epics = manager.getAllEpics();
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        out.writeVarInt(tasks.size() + epics.size() + subtasks.size());
+        tasks.forEach(out::writeTask);
+        epics.forEach(out::writeTask);
+        subtasks.forEach(out::writeTask);
+        return out.toByteArray();
+    }
+
+    static <T extends InMemoryTaskManager> T decode(T manager, byte[] data) {
+        if (!isBinary(data)) {
+            throw new ManagerSaveException("Файл не является двоичным снимком");
+        }
+        Input in = new Input(data, MAGIC.length);
+        int version = data.length > MAGIC.length ? in.readByte() : -1;
+        if (version != VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия двоичного снимка: " + version);
+        }
+
+        List<Task> parsed;
+        int[] historyIds;
+        try {
+            historyIds = new int[in.readCount(1)];
+            for (int i = 0; i < historyIds.length; i++) {
+                historyIds[i] = in.readVarInt();
+            }
+
+            int count = in.readCount(MIN_TASK_BYTES);
+            parsed = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                parsed.add(in.readTask());
+            }
+        } catch (RuntimeException e) {
+            // Выход за конец данных, неизвестный код или недопустимая дата
+            throw new ManagerSaveException("Повреждённый двоичный снимок", e);
+        }
+        FileBackedTaskManager.restore(manager, parsed, historyIds);
+        return manager;
+    }
+
+    static int typeCode(TaskType type) {
+        switch (type) {
+            case TASK:
+                return 1;
+            case EPIC:
+                return 2;
+            case SUBTASK:
+                return 3;
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+
+    static TaskType typeOf(int code) {
+        switch (code) {
+            case 1:
+                return TaskType.TASK;
+            case 2:
+                return TaskType.EPIC;
+            case 3:
+                return TaskType.SUBTASK;
+            default:
+                throw new IllegalArgumentException("Неизвестный код типа: " + code);
+        }
+    }
+
+    static int statusCode(TaskStatus status) {
+        switch (status) {
+            case NEW:
+                return 0;
+            case IN_PROGRESS:
+                return 1;
+            case DONE:
+                return 2;
+            default:
+                throw new IllegalArgumentException("Неизвестный статус задачи: " + status);
+        }
+    }
+
+    static TaskStatus statusOf(int code) {
+        switch (code) {
+            case 0:
+                return TaskStatus.NEW;
+            case 1:
+                return TaskStatus.IN_PROGRESS;
+            case 2:
+                return TaskStatus.DONE;
+            default:
+                throw new IllegalArgumentException("Неизвестный код статуса: " + code);
+        }
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+        Output() {
+            super(4096);
+        }
+
+        void writeTask(Task task) {
+            write(typeCode(task.getType()));
+            write(statusCode(task.getStatus()));
+            writeVarInt(task.getId());
+            writeString(task.getTitle());
+            writeString(task.getDescription());
+
+            LocalDateTime startTime = task.getStartTime();
+            Duration duration = task.getDuration();
+            long epochSecond = startTime != null ? startTime.toEpochSecond(ZoneOffset.UTC) : 0;
+            long subMinuteNanos = startTime != null
+                    ? Math.floorMod(epochSecond, 60L) * 1_000_000_000L + startTime.getNano()
+                    : 0;
+            int flags = (startTime != null ? HAS_START : 0)
+                    | (duration != null ? HAS_DURATION : 0)
+                    | (subMinuteNanos != 0 ? HAS_SUB_MINUTE : 0);
+            write(flags);
+            if (startTime != null) {
+                writeVarLong(zigzag(Math.floorDiv(epochSecond, 60L)));
+                if (subMinuteNanos != 0) {
+                    writeVarLong(subMinuteNanos);
+                }
+            }
+            if (duration != null) {
+                writeVarLong(zigzag(duration.toMinutes()));
+            }
+            if (task instanceof Subtask) {
+                writeVarInt(((Subtask) task).getEpicId());
+            }
+        }
+
+        void writeString(String value) {
+            // 0 означает null, иначе длина + 1
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(Integer.toUnsignedLong(value));
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    private static class Input {
+        private final byte[] data;
+        private int position;
+
+        Input(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        Task readTask() {
+            int type = readByte();
+            TaskStatus status = statusOf(readByte());
+            int id = readVarInt();
+            String title = readString();
+            String description = readString();
+            int flags = readByte();
+
+            LocalDateTime startTime = null;
+            if ((flags & HAS_START) != 0) {
+                long epochSecond = unzigzag(readVarLong()) * 60L;
+                long subMinuteNanos = (flags & HAS_SUB_MINUTE) != 0 ? readVarLong() : 0;
+                startTime = LocalDateTime.ofEpochSecond(epochSecond + subMinuteNanos / 1_000_000_000,
+                        (int) (subMinuteNanos % 1_000_000_000), ZoneOffset.UTC);
+            }
+            Duration duration = (flags & HAS_DURATION) != 0 ? Duration.ofMinutes(unzigzag(readVarLong())) : null;
+
+            Task task;
+            switch (type) {
+                case 1:
+                    task = new Task(title, description);
+                    break;
+                case 2:
+                    task = new Epic(title, description);
+                    break;
+                case 3:
+                    task = new Subtask(title, description, readVarInt());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный код типа: " + type);
+            }
+            task.setId(id);
+            task.setStatus(status);
+            task.setStartTime(startTime);
+            task.setDuration(duration);
+            return task;
+        }
+
+        int readByte() {
+            return data[position++] & 0xFF;
+        }
+
+        // Число записей дальше в файле: каждая занимает не меньше minBytes, поэтому повреждённое
+        // значение отсекается до выделения памяти под него
+        int readCount(int minBytes) {
+            long count = readVarLong();
+            if (count < 0 || count > (data.length - position) / minBytes) {
+                throw new IllegalArgumentException("Число записей больше, чем помещается в файле: " + count);
+            }
+            return (int) count;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length == 0) return null;
+            String value = new String(data, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Слишком длинное varint-число");
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+import model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Потоковая загрузка CSV-файла FileBackedTaskManager. Файл читается через FileChannel блоками,
+ * граница блока сдвигается на конец последней целой строки. Блоки разбираются параллельно в ForkJoinPool,
+ * одновременно в работе не больше двух блоков на поток, поэтому память ограничена размером блока,
+ * а не размером файла. Результаты сливаются в порядке файла, после чего связи и индексы
+ * восстанавливаются за один проход.
+ */
+class CsvTaskLoader {
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private static final String HISTORY_PREFIX = "history,";
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    CsvTaskLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    CsvTaskLoader(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    private static class ParsedChunk {
+        final List<Task> tasks = new ArrayList<>();
+        int[] historyIds;
+    }
+
+    <T extends InMemoryTaskManager> T load(T manager, File file) {
+        List<Task> parsed = new ArrayList<>();
+        int[] historyIds = new int[0];
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ArrayDeque<ForkJoinTask<ParsedChunk>> inFlight = new ArrayDeque<>();
+            int maxInFlight = Math.max(2, pool.getParallelism() * 2);
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+            boolean headerSkipped = false;
+
+            while (true) {
+                int read = channel.read(buffer);
+                boolean eof = read < 0;
+                if (!buffer.hasRemaining() && !eof && lastNewline(buffer) < 0) {
+                    // Строка длиннее блока: расширяем буфер, чтобы она поместилась целиком
+                    buffer = grow(buffer);
+                    continue;
+                }
+                if (!eof && buffer.hasRemaining()) continue;
+
+                int end = eof ? buffer.position() : lastNewline(buffer) + 1;
+                int start = 0;
+                if (!headerSkipped) {
+                    int headerEnd = indexOfNewline(buffer, end);
+                    if (headerEnd < 0 && !eof) {
+                        buffer = grow(buffer);
+                        continue;
+                    }
+                    start = headerEnd < 0 ? end : headerEnd + 1;
+                    headerSkipped = true;
+                }
+
+                if (start < end) {
+                    byte[] chunk = Arrays.copyOfRange(buffer.array(), start, end);
+                    inFlight.add(pool.submit(() -> parseChunk(chunk)));
+                    while (inFlight.size() >= maxInFlight) {
+                        historyIds = merge(inFlight.poll().join(), parsed, historyIds);
+                    }
+                }
+                if (eof) break;
+
+                // Хвост недочитанной строки переносится в начало буфера
+                buffer.limit(buffer.position());
+                buffer.position(end);
+                buffer.compact();
+            }
+
+            while (!inFlight.isEmpty()) {
+                historyIds = merge(inFlight.poll().join(), parsed, historyIds);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+
+        FileBackedTaskManager.restore(manager, parsed, historyIds);
+        return manager;
+    }
+
+    private static int[] merge(ParsedChunk chunk, List<Task> parsed, int[] historyIds) {
+        parsed.addAll(chunk.tasks);
+        return chunk.historyIds != null ? chunk.historyIds : historyIds;
+    }
+
+    private static ParsedChunk parseChunk(byte[] chunk) {
+        ParsedChunk result = new ParsedChunk();
+        String text = new String(chunk, StandardCharsets.UTF_8);
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = length;
+            int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            if (contentEnd > lineStart) {
+                if (text.startsWith(HISTORY_PREFIX, lineStart)) {
+                    result.historyIds = parseHistory(text, lineStart + HISTORY_PREFIX.length(), contentEnd);
+                } else {
+                    Task task = FileBackedTaskManager.fromString(text.substring(lineStart, contentEnd));
+                    if (task != null) {
+                        result.tasks.add(task);
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+
+    private static int[] parseHistory(String text, int from, int to) {
+        int[] ids = new int[8];
+        int count = 0;
+        int start = from;
+        while (start <= to) {
+            int comma = text.indexOf(',', start);
+            int end = comma < 0 || comma > to ? to : comma;
+            if (end > start) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = Integer.parseInt(text, start, end, 10);
+            }
+            start = end + 1;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static int lastNewline(ByteBuffer buffer) {
+        byte[] array = buffer.array();
+        for (int i = buffer.position() - 1; i >= 0; i--) {
+            if (array[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int end) {
+        byte[] array = buffer.array();
+        for (int i = 0; i < end; i++) {
+            if (array[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer) {
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
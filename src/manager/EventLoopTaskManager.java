@@ -0,0 +1,703 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import util.PersistentSortedSet;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Менеджер с одним писателем. Все изменения ставятся в неблокирующую очередь и применяются к исходному
+ * менеджеру одним потоком пачками до {@value #MAX_BATCH} команд. После пачки менеджер с отложенной записью
+ * сохраняется один раз, и публикуется новый неизменяемый снимок состояния. Результат команды приходит
+ * в CompletableFuture после публикации снимка, поэтому вызывающий сразу видит свою запись.
+ * Ошибка команды, даже Error, завершает только её CompletableFuture, писатель продолжает работу.
+ * <p>
+ * Чтения идут из последнего снимка без блокировок и без ожидания писателя. Задачи в снимке — копии,
+ * списки неизменяемые. Снимок хранит копии в неизменяемых деревьях и после пачки копирует только
+ * изменённые задачи: их находит сравнение с прошлым снимком InMemoryTaskManager по общим узлам
+ * (изменённая задача в нём всегда новый объект). Для прочих менеджеров заново копируются коллекции,
+ * чья версия выросла.
+ * Запросы по индексам (поиск, свободные окна) выполняются писателем и возвращают задачи из снимка.
+ * Исходный менеджер после передачи сюда трогать нельзя, задачи в нём меняются только его методами.
+ */
+public final class EventLoopTaskManager implements TaskManager, AutoCloseable {
+    static final int MAX_BATCH = 1024;
+
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+
+    private final TaskManager delegate;
+    private final Queue<Command<?>> commands = new ConcurrentLinkedQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile Snapshot snapshot;
+
+    public EventLoopTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        this.snapshot = Snapshot.EMPTY.next(delegate);
+        this.writer = new Thread(this::runLoop, "task-manager-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Ставит команду в очередь писателя. Команда получает исходный менеджер и не должна возвращать
+     * его задачи наружу: писатель продолжит их менять. Задачи меняются только методами менеджера,
+     * иначе снимок изменений не увидит.
+     */
+    public <T> CompletableFuture<T> submit(Function<TaskManager, T> action) {
+        Command<T> command = new Command<>(action);
+        if (!running) {
+            command.future.completeExceptionally(new IllegalStateException("Менеджер закрыт"));
+            return command.future;
+        }
+        commands.offer(command);
+        LockSupport.unpark(writer);
+        // Закрытие могло пройти между проверкой и постановкой: тогда писатель команду уже не возьмёт
+        if (!running && commands.remove(command)) {
+            command.future.completeExceptionally(new IllegalStateException("Менеджер закрыт"));
+        }
+        return command.future;
+    }
+
+    private void runLoop() {
+        List<Command<?>> batch = new ArrayList<>();
+        while (true) {
+            Command<?> command;
+            while (batch.size() < MAX_BATCH && (command = commands.poll()) != null) {
+                batch.add(command);
+            }
+            if (batch.isEmpty()) {
+                if (!running) return;
+                LockSupport.park(this);
+                continue;
+            }
+            runBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void runBatch(List<Command<?>> batch) {
+        for (Command<?> command : batch) {
+            command.run(delegate);
+        }
+
+        Throwable batchError = null;
+        try {
+            if (delegate instanceof FileBackedTaskManager fileBacked && fileBacked.isWriteBehind()) {
+                fileBacked.flush();
+            }
+        } catch (Throwable e) {
+            batchError = e;
+        }
+        // Если снимок не собрался, следующий сравнивается всё с тем же прошлым и подберёт изменения
+        try {
+            snapshot = snapshot.next(delegate);
+        } catch (Throwable e) {
+            if (batchError == null) {
+                batchError = e;
+            } else {
+                batchError.addSuppressed(e);
+            }
+        }
+
+        for (Command<?> command : batch) {
+            command.complete(batchError);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+
+    // Писатель возвращает только id, задачи берутся из снимка, опубликованного вместе с результатом
+    private <T extends Task> List<T> query(Function<TaskManager, List<T>> query) {
+        int[] ids = await(submit(manager -> ids(query.apply(manager))));
+        return resolve(ids, snapshot);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> List<T> resolve(int[] ids, Snapshot current) {
+        List<T> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = current.find(id);
+            if (task != null) result.add((T) task);
+        }
+        return result;
+    }
+
+    private static int[] ids(List<? extends Task> tasks) {
+        int[] ids = new int[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tasks.get(i).getId();
+        }
+        return ids;
+    }
+
+    // Исходный менеджер продолжит менять сохранённый объект, поэтому наружу уходит копия, снятая писателем
+    @Override
+    public Task createTask(Task task) {
+        return await(submit(manager -> TaskCopies.of(manager.createTask(task))));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return await(submit(manager -> TaskCopies.of(manager.createEpic(epic))));
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        return await(submit(manager -> TaskCopies.of(manager.createSubtask(subtask))));
+    }
+
+    // Просмотр дописывает историю, поэтому идёт через писателя
+    @Override
+    public Task getTask(int id) {
+        return await(submit(manager -> manager.getTask(id) != null)) ? snapshot.tasks.get(id) : null;
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return await(submit(manager -> manager.getEpic(id) != null)) ? snapshot.epics.get(id) : null;
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return await(submit(manager -> manager.getSubtask(id) != null)) ? snapshot.subtasks.get(id) : null;
+    }
+
+    @Override
+    public Task peekTask(int id) {
+        return snapshot.tasks.get(id);
+    }
+
+    @Override
+    public Epic peekEpic(int id) {
+        return snapshot.epics.get(id);
+    }
+
+    @Override
+    public Subtask peekSubtask(int id) {
+        return snapshot.subtasks.get(id);
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return snapshot.find(id) != null;
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return snapshot.tasks.byId.asList();
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return snapshot.subtasks.byId.asList();
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return snapshot.epics.byId.asList();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return snapshot.tasks.withStatus(status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return snapshot.epics.withStatus(status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return snapshot.subtasks.withStatus(status);
+    }
+
+    @Override
+    public long getVersion(TaskCollection collection) {
+        return snapshot.versions[collection.ordinal()];
+    }
+
+    @Override
+    public List<Task> getTasksAfter(int afterId, int limit) {
+        return snapshot.tasks.after(afterId, limit);
+    }
+
+    @Override
+    public List<Epic> getEpicsAfter(int afterId, int limit) {
+        return snapshot.epics.after(afterId, limit);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksAfter(int afterId, int limit) {
+        return snapshot.subtasks.after(afterId, limit);
+    }
+
+    // Пересечения ищутся в потоке читателя по копиям из снимка: писатель не ждёт потребителя пар
+    @Override
+    public void forEachConflict(BiConsumer<Task, Task> action) {
+        Snapshot current = snapshot;
+        List<Task> candidates = new ArrayList<>(current.tasks.byId.size() + current.subtasks.byId.size());
+        candidates.addAll(current.tasks.byId.asList());
+        candidates.addAll(current.subtasks.byId.asList());
+        InMemoryTaskManager.forEachConflict(candidates, action);
+    }
+
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        return await(submit(manager -> TaskCopies.ofResults(manager.applyBatch(operations))));
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        return query(manager -> manager.search(query));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpic(int epicId) {
+        Snapshot current = snapshot;
+        Epic epic = current.epics.get(epicId);
+        if (epic == null) return Collections.emptyList();
+
+        List<Subtask> result = new ArrayList<>();
+        for (int subtaskId : epic.getSubtaskIds()) {
+            Subtask subtask = current.subtasks.get(subtaskId);
+            if (subtask != null) result.add(subtask);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        return await(submit(manager -> manager.updateTask(task)));
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic) {
+        return await(submit(manager -> manager.updateEpic(epic)));
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask) {
+        return await(submit(manager -> manager.updateSubtask(subtask)));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        await(submit(manager -> {
+            manager.deleteAllTasks();
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        await(submit(manager -> {
+            manager.deleteAllSubtasks();
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        await(submit(manager -> {
+            manager.deleteAllEpics();
+            return null;
+        }));
+    }
+
+    @Override
+    public boolean deleteTask(int id) {
+        return await(submit(manager -> manager.deleteTask(id)));
+    }
+
+    @Override
+    public boolean deleteEpic(int id) {
+        return await(submit(manager -> manager.deleteEpic(id)));
+    }
+
+    @Override
+    public boolean deleteSubtask(int id) {
+        return await(submit(manager -> manager.deleteSubtask(id)));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return snapshot.history();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return snapshot.prioritized();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Лимит не может быть отрицательным");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+
+        List<Task> prioritized = snapshot.prioritized();
+        int start = from != null ? lowerBound(prioritized, from) : 0;
+        int end = to != null ? lowerBound(prioritized, to) : prioritized.size();
+        return new ArrayList<>(prioritized.subList(start, Math.min(end, start + limit)));
+    }
+
+    // Первая позиция, где начало не раньше time; список отсортирован по началу
+    private static int lowerBound(List<Task> prioritized, LocalDateTime time) {
+        int low = 0;
+        int high = prioritized.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prioritized.get(middle).getStartTime().isBefore(time)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public boolean isTaskOverlapping(Task task) {
+        return await(submit(manager -> manager.isTaskOverlapping(task)));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime notBefore, Duration duration) {
+        return await(submit(manager -> manager.findFreeSlot(notBefore, duration)));
+    }
+
+    @Override
+    public List<Task> autoSchedule(List<Integer> taskIds, LocalDateTime notBefore) {
+        return query(manager -> manager.autoSchedule(taskIds, notBefore));
+    }
+
+    @Override
+    public void updateEpicTime(int epicId) {
+        await(submit(manager -> {
+            manager.updateEpicTime(epicId);
+            return null;
+        }));
+    }
+
+    @Override
+    public void updateEpicStatus(int epicId) {
+        await(submit(manager -> {
+            manager.updateEpicStatus(epicId);
+            return null;
+        }));
+    }
+
+    @Override
+    public LocalDateTime getTaskEndTime(int id) {
+        Task task = snapshot.find(id);
+        return task != null ? task.getEndTime() : null;
+    }
+
+    /**
+     * Дожидается применения уже поставленных команд и останавливает писателя.
+     * Команды, пришедшие после закрытия, завершаются с IllegalStateException.
+     * Прерывание во время ожидания не останавливает закрытие, флаг прерывания восстанавливается.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        Command<?> command;
+        while ((command = commands.poll()) != null) {
+            command.future.completeExceptionally(new IllegalStateException("Менеджер закрыт"));
+        }
+        try {
+            Managers.close(delegate);
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Command<T> {
+        private final Function<TaskManager, T> action;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private Throwable error;
+
+        Command(Function<TaskManager, T> action) {
+            this.action = action;
+        }
+
+        void run(TaskManager manager) {
+            try {
+                result = action.apply(manager);
+            } catch (Throwable e) {
+                error = e;
+            }
+        }
+
+        // Ошибка сохранения относится ко всей пачке: изменения в памяти применены, на диск не попали
+        void complete(Throwable batchError) {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else if (batchError != null) {
+                future.completeExceptionally(batchError);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    /**
+     * Неизменяемый снимок: копии задач в деревьях по id и по статусам, версии и списки истории
+     * и приоритетов. Следующий снимок делит с предыдущим все узлы, кроме путей к изменённым задачам.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new long[TaskCollection.values().length],
+                PersistentSortedSet.empty(BY_ID), PersistentSortedSet.empty(BY_ID), PersistentSortedSet.empty(BY_ID),
+                new Copies<>(id -> withId(new Task("", ""), id)),
+                new Copies<>(id -> withId(new Epic("", ""), id)),
+                new Copies<>(id -> withId(new Subtask("", "", Integer.MAX_VALUE), id)),
+                List.of(), List.of());
+
+        private final long[] versions;
+        // Множества исходного менеджера, с которыми сравнивается следующий снимок
+        private final PersistentSortedSet<Task> sourceTasks;
+        private final PersistentSortedSet<Epic> sourceEpics;
+        private final PersistentSortedSet<Subtask> sourceSubtasks;
+        private final Copies<Task> tasks;
+        private final Copies<Epic> epics;
+        private final Copies<Subtask> subtasks;
+        // История и приоритеты исходного менеджера: у InMemoryTaskManager это неизменяемые представления
+        private final List<Task> sourceHistory;
+        private final List<Task> sourcePrioritized;
+
+        private Snapshot(long[] versions, PersistentSortedSet<Task> sourceTasks, PersistentSortedSet<Epic> sourceEpics,
+                         PersistentSortedSet<Subtask> sourceSubtasks, Copies<Task> tasks, Copies<Epic> epics,
+                         Copies<Subtask> subtasks, List<Task> sourceHistory, List<Task> sourcePrioritized) {
+            this.versions = versions;
+            this.sourceTasks = sourceTasks;
+            this.sourceEpics = sourceEpics;
+            this.sourceSubtasks = sourceSubtasks;
+            this.tasks = tasks;
+            this.epics = epics;
+            this.subtasks = subtasks;
+            this.sourceHistory = sourceHistory;
+            this.sourcePrioritized = sourcePrioritized;
+        }
+
+        /**
+         * Следующий снимок после изменений source. У InMemoryTaskManager множества берутся из его
+         * опубликованного снимка за O(1), у прочих менеджеров строятся заново по спискам изменившихся коллекций.
+         */
+        Snapshot next(TaskManager source) {
+            long[] nextVersions = new long[versions.length];
+            PersistentSortedSet<Task> nextTasks;
+            PersistentSortedSet<Epic> nextEpics;
+            PersistentSortedSet<Subtask> nextSubtasks;
+            List<Task> sourcePrioritized;
+            if (source instanceof InMemoryTaskManager inMemory) {
+                TaskSnapshot published = inMemory.snapshot();
+                for (TaskCollection collection : TaskCollection.values()) {
+                    nextVersions[collection.ordinal()] = published.getVersion(collection);
+                }
+                nextTasks = published.taskSet();
+                nextEpics = published.epicSet();
+                nextSubtasks = published.subtaskSet();
+                sourcePrioritized = published.getPrioritizedTasks();
+            } else {
+                for (TaskCollection collection : TaskCollection.values()) {
+                    nextVersions[collection.ordinal()] = source.getVersion(collection);
+                }
+                nextTasks = changed(nextVersions, TaskCollection.TASKS) ? setOf(source.getAllTasks()) : sourceTasks;
+                nextEpics = changed(nextVersions, TaskCollection.EPICS) ? setOf(source.getAllEpics()) : sourceEpics;
+                nextSubtasks = changed(nextVersions, TaskCollection.SUBTASKS)
+                        ? setOf(source.getAllSubtasks()) : sourceSubtasks;
+                sourcePrioritized = source.getPrioritizedTasks();
+            }
+
+            return new Snapshot(nextVersions, nextTasks, nextEpics, nextSubtasks,
+                    tasks.next(sourceTasks, nextTasks),
+                    epics.next(sourceEpics, nextEpics),
+                    subtasks.next(sourceSubtasks, nextSubtasks),
+                    source.getHistory(), sourcePrioritized);
+        }
+
+        private boolean changed(long[] nextVersions, TaskCollection collection) {
+            return nextVersions[collection.ordinal()] != versions[collection.ordinal()] || this == EMPTY;
+        }
+
+        private static <T extends Task> PersistentSortedSet<T> setOf(List<T> items) {
+            PersistentSortedSet<T> set = PersistentSortedSet.empty(BY_ID);
+            for (T item : items) {
+                set = set.plus(item);
+            }
+            return set;
+        }
+
+        List<Task> history() {
+            return new Resolved(sourceHistory, this);
+        }
+
+        List<Task> prioritized() {
+            return new Resolved(sourcePrioritized, this);
+        }
+
+        Task find(int id) {
+            Task task = tasks.get(id);
+            if (task == null) task = subtasks.get(id);
+            if (task == null) task = epics.get(id);
+            return task;
+        }
+    }
+
+    /**
+     * Копии задач одного вида по id и по статусам. Новый экземпляр меняется, пока строится снимок,
+     * и после публикации больше не трогается.
+     */
+    private static final class Copies<T extends Task> {
+        private final IntFunction<T> probe;
+        private PersistentSortedSet<T> byId;
+        private final Map<TaskStatus, PersistentSortedSet<T>> byStatus = new EnumMap<>(TaskStatus.class);
+
+        Copies(IntFunction<T> probe) {
+            this.probe = probe;
+            this.byId = PersistentSortedSet.empty(BY_ID);
+        }
+
+        private Copies(Copies<T> other) {
+            this.probe = other.probe;
+            this.byId = other.byId;
+            this.byStatus.putAll(other.byStatus);
+        }
+
+        // Копируются только задачи, которые сравнение множеств назвало изменёнными
+        Copies<T> next(PersistentSortedSet<T> before, PersistentSortedSet<T> after) {
+            if (before == after) return this;
+
+            Copies<T> next = new Copies<>(this);
+            after.diff(before, removed -> next.remove(removed.getId()), next::put);
+            return next;
+        }
+
+        private void put(T task) {
+            remove(task.getId());
+            T copy = TaskCopies.of(task);
+            byId = byId.plus(copy);
+            if (copy.getStatus() != null) {
+                PersistentSortedSet<T> current = byStatus.get(copy.getStatus());
+                byStatus.put(copy.getStatus(), (current != null ? current : PersistentSortedSet.<T>empty(BY_ID))
+                        .plus(copy));
+            }
+        }
+
+        private void remove(int id) {
+            T previous = get(id);
+            if (previous == null) return;
+
+            byId = byId.minus(previous);
+            if (previous.getStatus() != null) {
+                byStatus.computeIfPresent(previous.getStatus(), (status, current) -> current.minus(previous));
+            }
+        }
+
+        T get(int id) {
+            return id > 0 ? byId.get(probe.apply(id)) : null;
+        }
+
+        List<T> withStatus(TaskStatus status) {
+            PersistentSortedSet<T> items = byStatus.get(status);
+            return items != null ? items.asList() : List.of();
+        }
+
+        // Спуск по дереву до afterId и обход только страницы: O(log n + limit)
+        List<T> after(int afterId, int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Лимит не может быть отрицательным");
+            }
+            return byId.higher(probe.apply(Math.max(afterId, 0)), limit);
+        }
+    }
+
+    // Id задач начинаются с 1, поэтому образец без id (0) стоит перед всеми
+    private static <T extends Task> T withId(T probe, int id) {
+        if (id > 0) probe.setId(id);
+        return probe;
+    }
+
+    /**
+     * Список исходного менеджера, где каждая задача заменена копией из снимка с тем же id.
+     * Создаётся за O(1), источник не копируется.
+     */
+    private static final class Resolved extends AbstractList<Task> {
+        private final List<Task> source;
+        private final Snapshot snapshot;
+
+        Resolved(List<Task> source, Snapshot snapshot) {
+            this.source = source;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public Task get(int index) {
+            return snapshot.find(source.get(index).getId());
+        }
+
+        @Override
+        public int size() {
+            return source.size();
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            Iterator<Task> items = source.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return items.hasNext();
+                }
+
+                @Override
+                public Task next() {
+                    return snapshot.find(items.next().getId());
+                }
+            };
+        }
+    }
+}
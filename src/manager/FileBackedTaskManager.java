@@ -3,153 +3,358 @@ package manager;
 import exceptions.ManagerSaveException;
 import model.*;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-
-public class FileBackedTaskManager extends InMemoryTaskManager {
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Менеджер с сохранением в файл в формате CSV или в двоичном формате (см. SnapshotFormat).
+ * В строгом режиме файл перезаписывается после каждой операции.
+ * В режиме отложенной записи изменения копятся и сбрасываются фоновым потоком раз в flushInterval
+ * или после maxPendingChanges изменений; close() сбрасывает их синхронно.
+ */
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     private final File file;
+    private final SnapshotFormat format;
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
     private static final String CSV_HEADER = "id,type,name,status,description,startTime,duration,epic\n";
 
+    private final ScheduledExecutorService flushExecutor;
+    private final long flushIntervalMillis;
+    private final int maxPendingChanges;
+    private final Object fileLock = new Object();
+    private boolean dirty;
+    private int pendingChanges;
+    private boolean flushRequested;
+    private boolean flushScheduled;
+
     public FileBackedTaskManager(File file) {
-        super(Managers.getDefaultHistory());
+        this(file, SnapshotFormat.CSV);
+    }
+
+    public FileBackedTaskManager(File file, SnapshotFormat format) {
+        this(file, format, Managers.getDefaultHistory());
+    }
+
+    public FileBackedTaskManager(File file, SnapshotFormat format, HistoryManager historyManager) {
+        super(historyManager);
         this.file = file;
+        this.format = Objects.requireNonNull(format);
+        this.flushExecutor = null;
+        this.flushIntervalMillis = 0;
+        this.maxPendingChanges = 0;
     }
 
+    public FileBackedTaskManager(File file, Duration flushInterval, int maxPendingChanges) {
+        this(file, SnapshotFormat.CSV, flushInterval, maxPendingChanges);
+    }
+
+    public FileBackedTaskManager(File file, SnapshotFormat format, Duration flushInterval, int maxPendingChanges) {
+        this(file, format, flushInterval, maxPendingChanges, Managers.getDefaultHistory());
+    }
 
+    public FileBackedTaskManager(File file, SnapshotFormat format, Duration flushInterval, int maxPendingChanges,
+                                 HistoryManager historyManager) {
+        super(historyManager);
+        if (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Интервал сброса должен быть положительным");
+        }
+        if (maxPendingChanges < 1) {
+            throw new IllegalArgumentException("Порог изменений должен быть не менее 1");
+        }
+        this.file = file;
+        this.format = Objects.requireNonNull(format);
+        this.maxPendingChanges = maxPendingChanges;
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-backed-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Загружает файл любого формата; менеджер продолжает сохранять в том же формате.
+     */
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        return loadFromFile(file, detectFormat(file));
+    }
 
-        try {
-            String content = Files.readString(file.toPath());
-            if (content.isEmpty()) {
-                return manager;
-            }
+    /**
+     * Загружает файл любого формата и дальше сохраняет в указанном.
+     */
+    public static FileBackedTaskManager loadFromFile(File file, SnapshotFormat format) {
+        if (format == SnapshotFormat.MAPPED && detectFormat(file) == SnapshotFormat.MAPPED) {
+            return new MappedTaskManager(file, MappedSnapshotFile.open(file));
+        }
+        return load(new FileBackedTaskManager(file, format), file);
+    }
 
-            String[] lines = content.split("\n");
-            if (lines.length <= 1) return manager;
+    public static FileBackedTaskManager loadFromFile(File file, Duration flushInterval, int maxPendingChanges) {
+        SnapshotFormat format = detectFormat(file);
+        if (format == SnapshotFormat.MAPPED) {
+            return new MappedTaskManager(file, MappedSnapshotFile.open(file), flushInterval, maxPendingChanges);
+        }
+        return load(new FileBackedTaskManager(file, format, flushInterval, maxPendingChanges), file);
+    }
 
-            List<Integer> historyIds = new ArrayList<>();
-            Map<Integer, Task> allTasks = new HashMap<>();
+    /**
+     * Переписывает снимок source в target в указанном формате.
+     */
+    public static void convert(File source, File target, SnapshotFormat format) {
+        InMemoryTaskManager manager = load(new InMemoryTaskManager(Managers.getDefaultHistory()), source);
+        try {
+            Files.write(target.toPath(), encode(manager, format));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+    }
 
-            for (int i = 1; i < lines.length; i++) {
-                if (lines[i].isEmpty()) continue;
+    public static SnapshotFormat detectFormat(File file) {
+        byte[] head = new byte[BinarySnapshotCodec.MAGIC.length];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = in.readNBytes(head, 0, head.length);
+            if (read < head.length) return SnapshotFormat.CSV;
+            if (BinarySnapshotCodec.isBinary(head)) return SnapshotFormat.BINARY;
+            return MappedSnapshotFile.isMapped(head) ? SnapshotFormat.MAPPED : SnapshotFormat.CSV;
+        } catch (FileNotFoundException e) {
+            return SnapshotFormat.CSV;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+    }
 
-                if (lines[i].startsWith("history,")) {
-                    String[] ids = lines[i].substring(8).split(",");
-                    for (String id : ids) {
-                        if (!id.isEmpty()) {
-                            historyIds.add(Integer.parseInt(id));
-                        }
-                    }
-                    continue;
+    static <T extends InMemoryTaskManager> T load(T manager, File file) {
+        switch (detectFormat(file)) {
+            case BINARY:
+                try {
+                    return BinarySnapshotCodec.decode(manager, Files.readAllBytes(file.toPath()));
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка загрузки из файла", e);
                 }
+            case MAPPED:
+                return MappedSnapshotFile.load(manager, file);
+            default:
+                return new CsvTaskLoader().load(manager, file);
+        }
+    }
 
-                Task task = fromString(lines[i]);
-                if (task == null) continue;
-
-                allTasks.put(task.getId(), task);
-
-                switch (task.getType()) {
-                    case TASK:
-                        manager.tasks.put(task.getId(), task);
-                        manager.addToPrioritizedTasks(task);
-                        break;
-                    case EPIC:
-                        manager.epics.put(task.getId(), (Epic) task);
-                        break;
-                    case SUBTASK:
-                        Subtask subtask = (Subtask) task;
-                        manager.subtasks.put(subtask.getId(), subtask);
-                        manager.addToPrioritizedTasks(subtask);
-                        Epic epic = manager.epics.get(subtask.getEpicId());
-                        if (epic != null) {
-                            epic.addSubtask(subtask.getId());
-                        }
-                        break;
-                }
+    /**
+     * Заполняет менеджер разобранными записями: сначала карты, затем за один проход индексы
+     * и связи подзадач с эпиками, затем история. При повторе id остаётся последняя запись.
+     */
+    static <T extends InMemoryTaskManager> void restore(T manager, List<Task> parsed, int[] historyIds) {
+        List<Subtask> loadedSubtasks = new ArrayList<>();
+        for (Task task : parsed) {
+            switch (task.getType()) {
+                case TASK:
+                    manager.tasks.put(task.getId(), task);
+                    manager.taskSet = manager.taskSet.plus(task);
+                    break;
+                case EPIC:
+                    manager.epics.put(task.getId(), (Epic) task);
+                    manager.epicSet = manager.epicSet.plus((Epic) task);
+                    break;
+                case SUBTASK:
+                    manager.subtasks.put(task.getId(), (Subtask) task);
+                    manager.subtaskSet = manager.subtaskSet.plus((Subtask) task);
+                    loadedSubtasks.add((Subtask) task);
+                    break;
+            }
+            if (task.getId() >= manager.nextId) {
+                manager.nextId = task.getId() + 1;
+            }
+        }
 
-                if (task.getId() >= manager.nextId) {
-                    manager.nextId = task.getId() + 1;
-                }
+        // Карты заполнены целиком, поэтому подзадача находит эпик независимо от порядка записей
+        for (Task task : manager.tasks.values()) {
+            manager.addToPrioritizedTasks(task);
+            manager.taskStatuses.put(task.getId(), task.getStatus());
+            manager.textIndex.put(task.getId(), task.getTitle(), task.getDescription());
+        }
+        for (Subtask subtask : loadedSubtasks) {
+            if (manager.subtasks.get(subtask.getId()) != subtask) continue;
+
+            manager.addToPrioritizedTasks(subtask);
+            manager.subtaskStatuses.put(subtask.getId(), subtask.getStatus());
+            manager.textIndex.put(subtask.getId(), subtask.getTitle(), subtask.getDescription());
+            Epic epic = manager.epics.get(subtask.getEpicId());
+            if (epic != null) {
+                manager.linkSubtask(epic, subtask);
+            }
+        }
+
+        for (int id : historyIds) {
+            Task task = manager.tasks.get(id);
+            if (task == null) task = manager.epics.get(id);
+            if (task == null) task = manager.subtasks.get(id);
+            if (task != null) {
+                manager.historyManager.add(task);
             }
+        }
+
+        for (Epic epic : manager.epics.values()) {
+            manager.textIndex.put(epic.getId(), epic.getTitle(), epic.getDescription());
+            manager.updateEpicStatus(epic.getId());
+            manager.updateEpicTime(epic.getId());
+        }
+        manager.publishSnapshot();
+    }
+
+    public SnapshotFormat getFormat() {
+        return format;
+    }
 
+    public boolean isWriteBehind() {
+        return flushExecutor != null;
+    }
 
-            for (int id : historyIds) {
-                Task task = allTasks.get(id);
-                if (task != null) {
-                    manager.historyManager.add(task);
+    /**
+     * Синхронно записывает накопленные изменения. В строгом режиме файл и так актуален.
+     */
+    public void flush() {
+        if (!isWriteBehind()) return;
+
+        synchronized (fileLock) {
+            byte[] data;
+            synchronized (this) {
+                if (!dirty) return;
+                data = encodeSnapshot();
+                dirty = false;
+                pendingChanges = 0;
+                flushRequested = false;
+            }
+            try {
+                writeSnapshot(data);
+            } catch (IOException e) {
+                synchronized (this) {
+                    dirty = true;
                 }
+                throw new ManagerSaveException("Ошибка сохранения в файл", e);
             }
+        }
+    }
 
+    @Override
+    public void close() {
+        if (!isWriteBehind()) return;
 
-            for (Epic epic : manager.epics.values()) {
-                manager.updateEpicStatus(epic.getId());
-                manager.updateEpicTime(epic.getId());
-            }
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
 
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (ManagerSaveException e) {
+            System.err.println("Ошибка фонового сохранения: " + e.getMessage());
         }
+    }
 
-        return manager;
+    protected void save() {
+        if (!isWriteBehind()) {
+            try {
+                writeSnapshot(encodeSnapshot());
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка сохранения в файл", e);
+            }
+            return;
+        }
+
+        dirty = true;
+        pendingChanges++;
+        if (flushExecutor.isShutdown()) return;
+        // Периодический сброс ставится при первом изменении, а не в конструкторе:
+        // к этому моменту менеджер и его подклассы уже полностью созданы
+        if (!flushScheduled) {
+            flushScheduled = true;
+            flushExecutor.scheduleWithFixedDelay(this::flushQuietly,
+                    flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (pendingChanges >= maxPendingChanges && !flushRequested) {
+            flushRequested = true;
+            flushExecutor.execute(this::flushQuietly);
+        }
     }
 
+    protected byte[] encodeSnapshot() {
+        return encode(this, format);
+    }
 
-    private void save() {
-        try {
-            StringBuilder data = new StringBuilder(CSV_HEADER);
-
-            // Сохранение истории
-            List<Task> history = getHistory();
-            if (!history.isEmpty()) {
-                data.append("history,");
-                data.append(String.join(",", history.stream()
-                        .map(task -> String.valueOf(task.getId()))
-                        .toArray(String[]::new)));
-                data.append("\n");
-            }
+    protected void writeSnapshot(byte[] data) throws IOException {
+        Files.write(file.toPath(), data);
+    }
 
+    static byte[] encode(TaskManager manager, SnapshotFormat format) {
+        switch (format) {
+            case BINARY:
+                return BinarySnapshotCodec.encode(manager);
+            case MAPPED:
+                return MappedSnapshotFile.encode(manager);
+            default:
+                return buildFileContent(manager).getBytes(StandardCharsets.UTF_8);
+        }
+    }
 
-            for (Task task : getAllTasks()) {
-                data.append(toString(task)).append("\n");
-            }
-            for (Epic epic : getAllEpics()) {
-                data.append(toString(epic)).append("\n");
-            }
-            for (Subtask subtask : getAllSubtasks()) {
-                data.append(toString(subtask)).append("\n");
-            }
+    static String buildFileContent(TaskManager manager) {
+        StringBuilder data = new StringBuilder(CSV_HEADER);
+
+        // Сохранение истории
+        List<Task> history = manager.getHistory();
+        if (!history.isEmpty()) {
+            data.append("history,");
+            data.append(String.join(",", history.stream()
+                    .map(task -> String.valueOf(task.getId()))
+                    .toArray(String[]::new)));
+            data.append("\n");
+        }
 
-            Files.writeString(file.toPath(), data.toString());
 
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        for (Task task : manager.getAllTasks()) {
+            data.append(toString(task)).append("\n");
+        }
+        for (Epic epic : manager.getAllEpics()) {
+            data.append(toString(epic)).append("\n");
         }
+        for (Subtask subtask : manager.getAllSubtasks()) {
+            data.append(toString(subtask)).append("\n");
+        }
+        return data.toString();
     }
 
 
 
     @Override
-    public Task getTask(int id) {
+    public synchronized Task getTask(int id) {
         Task task = super.getTask(id);
         save();
         return task;
     }
 
     @Override
-    public Epic getEpic(int id) {
+    public synchronized Epic getEpic(int id) {
         Epic epic = super.getEpic(id);
         save();
         return epic;
     }
 
     @Override
-    public Subtask getSubtask(int id) {
+    public synchronized Subtask getSubtask(int id) {
         Subtask subtask = super.getSubtask(id);
         save();
         return subtask;
@@ -158,81 +363,95 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
 
     @Override
-    public Task createTask(Task task) {
+    public synchronized Task createTask(Task task) {
         Task created = super.createTask(task);
         if (created != null) save();
         return created;
     }
 
     @Override
-    public Epic createEpic(Epic epic) {
+    public synchronized Epic createEpic(Epic epic) {
         Epic created = super.createEpic(epic);
         save();
         return created;
     }
 
     @Override
-    public Subtask createSubtask(Subtask subtask) {
+    public synchronized Subtask createSubtask(Subtask subtask) {
         Subtask created = super.createSubtask(subtask);
         if (created != null) save();
         return created;
     }
 
     @Override
-    public boolean updateTask(Task task) {
+    public synchronized boolean updateTask(Task task) {
         boolean updated = super.updateTask(task);
         if (updated) save();
         return updated;
     }
 
     @Override
-    public boolean updateEpic(Epic epic) {
+    public synchronized boolean updateEpic(Epic epic) {
         boolean updated = super.updateEpic(epic);
         if (updated) save();
         return updated;
     }
 
     @Override
-    public boolean updateSubtask(Subtask subtask) {
+    public synchronized boolean updateSubtask(Subtask subtask) {
         boolean updated = super.updateSubtask(subtask);
         if (updated) save();
         return updated;
     }
 
     @Override
-    public void deleteAllTasks() {
+    public synchronized void deleteAllTasks() {
         super.deleteAllTasks();
         save();
     }
 
     @Override
-    public void deleteAllEpics() {
+    public synchronized void deleteAllEpics() {
         super.deleteAllEpics();
         save();
     }
 
     @Override
-    public void deleteAllSubtasks() {
+    public synchronized void deleteAllSubtasks() {
         super.deleteAllSubtasks();
         save();
     }
 
     @Override
-    public boolean deleteTask(int id) {
+    public synchronized boolean deleteTask(int id) {
         boolean deleted = super.deleteTask(id);
         if (deleted) save();
         return deleted;
     }
 
     @Override
-    public boolean deleteEpic(int id) {
+    public synchronized boolean deleteEpic(int id) {
         boolean deleted = super.deleteEpic(id);
         if (deleted) save();
         return deleted;
     }
 
     @Override
-    public boolean deleteSubtask(int id) {
+    public synchronized List<Task> autoSchedule(List<Integer> taskIds, LocalDateTime notBefore) {
+        List<Task> scheduled = super.autoSchedule(taskIds, notBefore);
+        if (!scheduled.isEmpty()) save();
+        return scheduled;
+    }
+
+    @Override
+    public synchronized List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        List<BatchResult> results = super.applyBatch(operations);
+        if (results.stream().anyMatch(BatchResult::isApplied)) save();
+        return results;
+    }
+
+    @Override
+    public synchronized boolean deleteSubtask(int id) {
         boolean deleted = super.deleteSubtask(id);
         if (deleted) save();
         return deleted;
@@ -240,7 +459,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
 
 
-    private String toString(Task task) {
+    static String toString(Task task) {
         String startTime = task.getStartTime() != null ? task.getStartTime().format(DATE_TIME_FORMATTER) : "";
         String duration = task.getDuration() != null ? String.valueOf(task.getDuration().toMinutes()) : "";
         String epicId = task instanceof Subtask ? String.valueOf(((Subtask) task).getEpicId()) : "";
@@ -257,10 +476,19 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         );
     }
 
-    private static Task fromString(String value) {
+    static Task fromString(String value) {
         try {
-            String[] fields = value.split(",");
-            if (fields.length < 5) return null;
+            // Разбор без split: поля вырезаются по позициям запятых, лишние пустые хвосты не создаются
+            String[] fields = new String[8];
+            int count = 0;
+            int start = 0;
+            while (count < fields.length) {
+                int comma = value.indexOf(',', start);
+                fields[count++] = value.substring(start, comma < 0 ? value.length() : comma);
+                if (comma < 0) break;
+                start = comma + 1;
+            }
+            if (count < 5) return null;
 
             int id = Integer.parseInt(fields[0]);
             TaskType type = TaskType.valueOf(fields[1]);
@@ -268,11 +496,11 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
             TaskStatus status = TaskStatus.valueOf(fields[3]);
             String description = fields[4];
 
-            LocalDateTime startTime = fields.length > 5 && !fields[5].isEmpty()
+            LocalDateTime startTime = count > 5 && !fields[5].isEmpty()
                     ? LocalDateTime.parse(fields[5], DATE_TIME_FORMATTER)
                     : null;
 
-            Duration duration = fields.length > 6 && !fields[6].isEmpty()
+            Duration duration = count > 6 && !fields[6].isEmpty()
                     ? Duration.ofMinutes(Long.parseLong(fields[6]))
                     : null;
 
@@ -295,7 +523,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                     return task;
 
                 case SUBTASK:
-                    if (fields.length <= 7 || fields[7].isEmpty()) {
+                    if (count <= 7 || fields[7].isEmpty()) {
                         throw new IllegalArgumentException("Subtask must have epicId");
                     }
                     int epicId = Integer.parseInt(fields[7]);
@@ -1,17 +1,45 @@
 package manager;
 
 import model.Task;
+import util.IntObjectHashMap;
 import java.util.*;
 
+/**
+ * История просмотров в порядке последнего просмотра. Просмотры дописываются в конец связной цепочки,
+ * поэтому добавление, удаление и вытеснение стоят O(1). Заменённый или удалённый узел не вырезается
+ * из цепочки, а помечается номером изменения, поэтому getHistory отдаёт неизменяемое представление
+ * за O(1) без копирования: оно пропускает узлы, удалённые не позже его собственного номера.
+ */
 public class InMemoryHistoryManager implements HistoryManager {
-    private final Map<Integer, Node> historyMap = new HashMap<>();
+    // Меньше этого числа мёртвых узлов цепочку не пересобираем
+    private static final int MIN_COMPACTION = 16;
+
+    private final IntObjectHashMap<Node> historyMap = new IntObjectHashMap<>();
+    private final int maxSize;
     private Node head;
     private Node tail;
+    private long version;
+    private int deadNodes;
+    private View view = new View(null, null, 0, 0);
+
+    public InMemoryHistoryManager() {
+        this.maxSize = Integer.MAX_VALUE;
+    }
+
+    // При переполнении вытесняется самый давний просмотр
+    public InMemoryHistoryManager(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Размер истории должен быть не менее 1");
+        }
+        this.maxSize = maxSize;
+    }
 
     private static class Node {
-        Task task;
-        Node prev;
+        final Task task;
+        // Пишется один раз, до публикации представления, которое доходит до следующего узла
         Node next;
+        // 0 — узел жив, иначе номер изменения, которым он удалён
+        volatile long removedAt;
 
         Node(Task task) {
             this.task = task;
@@ -22,55 +50,160 @@ public class InMemoryHistoryManager implements HistoryManager {
     public void add(Task task) {
         if (task == null) return;
 
+        version++;
+        Node previous = historyMap.get(task.getId());
+        if (previous != null) {
+            markRemoved(previous);
+            skipDeadHead();
+        }
 
-        remove(task.getId());
+        Node node = new Node(task);
+        if (tail == null) {
+            head = tail = node;
+        } else {
+            tail.next = node;
+            tail = node;
+        }
+        historyMap.put(task.getId(), node);
 
+        if (historyMap.size() > maxSize) {
+            historyMap.remove(head.task.getId());
+            markRemoved(head);
+        }
+        skipDeadHead();
+        compactIfSparse();
+    }
 
-        Node newNode = new Node(task);
-        linkLast(newNode);
-        historyMap.put(task.getId(), newNode);
+    public int getMaxSize() {
+        return maxSize;
     }
 
+    // Неизменяемый список: последующие просмотры его не меняют
     @Override
     public List<Task> getHistory() {
-        List<Task> history = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            history.add(current.task);
-            current = current.next;
+        if (view.version != version) {
+            view = new View(head, tail, version, historyMap.size());
         }
-        return history;
+        return view;
     }
 
     @Override
     public void remove(int id) {
         Node node = historyMap.remove(id);
         if (node != null) {
-            removeNode(node);
+            version++;
+            markRemoved(node);
+            skipDeadHead();
+            compactIfSparse();
         }
     }
 
-    private void linkLast(Node newNode) {
+    private void markRemoved(Node node) {
+        node.removedAt = version;
+        deadNodes++;
+    }
+
+    // Голова цепочки всегда живая, поэтому вытеснение не ищет самый давний просмотр
+    private void skipDeadHead() {
+        while (head != null && head.removedAt != 0) {
+            head = head.next;
+            deadNodes--;
+        }
         if (head == null) {
-            head = tail = newNode;
-        } else {
-            tail.next = newNode;
-            newNode.prev = tail;
-            tail = newNode;
+            tail = null;
         }
     }
 
-    private void removeNode(Node node) {
-        if (node.prev != null) {
-            node.prev.next = node.next;
-        } else {
-            head = node.next;
+    // Когда мёртвых узлов больше живых, живые переносятся в новую цепочку: старые представления
+    // продолжают читать прежние узлы, а новые проходят не больше чем вдвое больше узлов, чем видят.
+    private void compactIfSparse() {
+        if (deadNodes < MIN_COMPACTION || deadNodes <= historyMap.size()) return;
+
+        Node newHead = null;
+        Node newTail = null;
+        for (Node current = head; current != null; current = current.next) {
+            if (current.removedAt != 0) continue;
+            Node copy = new Node(current.task);
+            if (newTail == null) {
+                newHead = copy;
+            } else {
+                newTail.next = copy;
+            }
+            newTail = copy;
+            historyMap.put(copy.task.getId(), copy);
         }
+        head = newHead;
+        tail = newTail;
+        deadNodes = 0;
+    }
 
-        if (node.next != null) {
-            node.next.prev = node.prev;
-        } else {
-            tail = node.prev;
+    /**
+     * Представление истории на момент изменения с номером version: узлы от first до last,
+     * кроме удалённых не позже этого номера. Для доступа по индексу лениво собирается массив.
+     */
+    private static final class View extends AbstractList<Task> implements RandomAccess {
+        private final Node first;
+        private final Node last;
+        private final long version;
+        private final int size;
+        private volatile Task[] items;
+
+        View(Node first, Node last, long version, int size) {
+            this.first = first;
+            this.last = last;
+            this.version = version;
+            this.size = size;
+        }
+
+        @Override
+        public Task get(int index) {
+            Objects.checkIndex(index, size);
+            Task[] array = items;
+            if (array == null) {
+                array = new Task[size];
+                int i = 0;
+                for (Task task : this) {
+                    array[i++] = task;
+                }
+                items = array;
+            }
+            return array[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            return new Iterator<>() {
+                private Node next = advance(first);
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Task next() {
+                    if (next == null) throw new NoSuchElementException();
+                    Task task = next.task;
+                    next = next == last ? null : advance(next.next);
+                    return task;
+                }
+            };
+        }
+
+        // Первый узел начиная с node, который виден в этом представлении
+        private Node advance(Node node) {
+            if (size == 0) return null;
+            while (true) {
+                long removedAt = node.removedAt;
+                if (removedAt == 0 || removedAt > version) return node;
+                if (node == last) return null;
+                node = node.next;
+            }
         }
     }
-}
\ No newline at end of file
+}
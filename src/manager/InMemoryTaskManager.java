@@ -1,24 +1,55 @@
 package manager;
 
 import model.*;
+import util.DenseIntSet;
+import util.IntObjectHashMap;
+import util.PersistentSortedSet;
+import util.TaskIntervalTree;
+import util.TaskStatusIndex;
+import util.TaskTextIndex;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 public class InMemoryTaskManager implements TaskManager {
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
+    protected final IntObjectHashMap<Task> tasks = new IntObjectHashMap<>();
+    protected final IntObjectHashMap<Epic> epics = new IntObjectHashMap<>();
+    protected final IntObjectHashMap<Subtask> subtasks = new IntObjectHashMap<>();
     protected final HistoryManager historyManager;
     protected int nextId = 1;
 
-    protected final Set<Task> prioritizedTasks = new TreeSet<>(
+    protected final NavigableSet<Task> prioritizedTasks = new TreeSet<>(
             Comparator.comparing(
                     Task::getStartTime,
                     Comparator.nullsLast(Comparator.naturalOrder())
             )
     );
+    protected final TaskIntervalTree intervalIndex = new TaskIntervalTree();
+    protected final TaskStatusIndex taskStatuses = new TaskStatusIndex();
+    protected final TaskStatusIndex epicStatuses = new TaskStatusIndex();
+    protected final TaskStatusIndex subtaskStatuses = new TaskStatusIndex();
+    // Общий для всех видов задач: id не пересекаются
+    protected final TaskTextIndex textIndex = new TaskTextIndex();
+    // Статус и время, с которыми подзадача учтена в своём эпике
+    protected final IntObjectHashMap<LinkedSubtask> linkedSubtasks = new IntObjectHashMap<>();
+
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+    // Неизменяемые копии карт и приоритетов с общими узлами: меняются вместе с картами за O(log n),
+    // а читатели получают их целиком через опубликованный снимок. Опубликованные задачи не меняются:
+    // перед изменением эпик или задача заменяются копией
+    protected PersistentSortedSet<Task> taskSet = PersistentSortedSet.empty(BY_ID);
+    protected PersistentSortedSet<Epic> epicSet = PersistentSortedSet.empty(BY_ID);
+    protected PersistentSortedSet<Subtask> subtaskSet = PersistentSortedSet.empty(BY_ID);
+    protected PersistentSortedSet<Task> prioritizedSet = PersistentSortedSet.empty(prioritizedTasks.comparator());
+    private volatile TaskSnapshot snapshot = new TaskSnapshot(
+            0, new long[TaskCollection.values().length], taskSet, epicSet, subtaskSet, prioritizedSet, List.of());
+    // Изменения, которых не видно по множествам: история
+    private final EnumSet<TaskCollection> changedInPlace = EnumSet.noneOf(TaskCollection.class);
+    // Эпики, уже заменённые копией после последней публикации: их можно менять до следующей
+    private final DenseIntSet replacedEpics = new DenseIntSet();
 
     public InMemoryTaskManager(HistoryManager historyManager) {
         this.historyManager = historyManager;
@@ -29,17 +60,16 @@ public class InMemoryTaskManager implements TaskManager {
         if (task == null || isTaskOverlapping(task)) {
             return null;
         }
-        task.setId(nextId++);
-        tasks.put(task.getId(), task);
-        addToPrioritizedTasks(task);
+        insertTask(task);
+        publishSnapshot();
         return task;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
         if (epic == null) return null;
-        epic.setId(nextId++);
-        epics.put(epic.getId(), epic);
+        insertEpic(epic);
+        publishSnapshot();
         return epic;
     }
 
@@ -48,52 +78,184 @@ public class InMemoryTaskManager implements TaskManager {
         if (subtask == null || !epics.containsKey(subtask.getEpicId()) || isTaskOverlapping(subtask)) {
             return null;
         }
-        subtask.setId(nextId++);
-        subtasks.put(subtask.getId(), subtask);
-        addToPrioritizedTasks(subtask);
-
-        Epic epic = epics.get(subtask.getEpicId());
-        epic.addSubtask(subtask.getId());
-        updateEpicStatus(epic.getId());
-        updateEpicTime(epic.getId());
-
+        insertSubtask(subtask);
+        refreshEpic(subtask.getEpicId());
+        publishSnapshot();
         return subtask;
     }
 
     @Override
     public Task getTask(int id) {
         Task task = tasks.get(id);
-        if (task != null) historyManager.add(task);
+        if (task != null) {
+            historyManager.add(task);
+            markChanged(TaskCollection.HISTORY);
+            publishSnapshot();
+        }
         return task;
     }
 
     @Override
     public Epic getEpic(int id) {
         Epic epic = epics.get(id);
-        if (epic != null) historyManager.add(epic);
+        if (epic != null) {
+            historyManager.add(epic);
+            markChanged(TaskCollection.HISTORY);
+            publishSnapshot();
+        }
         return epic;
     }
 
     @Override
     public Subtask getSubtask(int id) {
         Subtask subtask = subtasks.get(id);
-        if (subtask != null) historyManager.add(subtask);
+        if (subtask != null) {
+            historyManager.add(subtask);
+            markChanged(TaskCollection.HISTORY);
+            publishSnapshot();
+        }
         return subtask;
     }
 
+    @Override
+    public Task peekTask(int id) {
+        return tasks.get(id);
+    }
+
+    @Override
+    public Epic peekEpic(int id) {
+        return epics.get(id);
+    }
+
+    @Override
+    public Subtask peekSubtask(int id) {
+        return subtasks.get(id);
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id);
+    }
+
+    /**
+     * Последний опубликованный снимок. Берётся за O(1) без блокировок и копирования.
+     */
+    public TaskSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Вызывается в конце каждой изменяющей операции, чтобы читатели не видели промежуточных состояний
+    protected void publishSnapshot() {
+        replacedEpics.clear();
+        TaskSnapshot current = snapshot;
+        if (changedInPlace.isEmpty() && current.sameContent(taskSet, epicSet, subtaskSet, prioritizedSet)) return;
+
+        List<Task> history = historyManager.getHistory();
+        snapshot = current.next(taskSet, epicSet, subtaskSet, prioritizedSet,
+                history != null ? history : List.of(), changedInPlace);
+        changedInPlace.clear();
+    }
+
+    protected void markChanged(TaskCollection collection) {
+        changedInPlace.add(collection);
+    }
+
+    /**
+     * Эпик, который можно менять. Первый раз после публикации сохранённый эпик заменяется копией за O(1),
+     * поэтому объект из опубликованного снимка остаётся прежним.
+     */
+    protected Epic editableEpic(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null || replacedEpics.contains(epicId)) return epic;
+
+        Epic copy = epic.copy();
+        epics.put(epicId, copy);
+        epicSet = epicSet.plus(copy);
+        replacedEpics.add(epicId);
+        return copy;
+    }
+
+    /**
+     * Версия коллекции растёт при каждом изменении, которое может поменять её содержимое.
+     */
+    @Override
+    public long getVersion(TaskCollection collection) {
+        return snapshot.getVersion(collection);
+    }
+
+    // Списки ниже неизменяемые, упорядочены по id и не копируются при каждом вызове
     @Override
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+        return snapshot.getTasks();
     }
 
     @Override
     public List<Subtask> getAllSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        return snapshot.getSubtasks();
     }
 
     @Override
     public List<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+        return snapshot.getEpics();
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return collectByStatus(taskStatuses, status, tasks);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return collectByStatus(epicStatuses, status, epics);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return collectByStatus(subtaskStatuses, status, subtasks);
+    }
+
+    // Спуск по дереву снимка до afterId и обход только страницы: O(log n + limit)
+    @Override
+    public List<Task> getTasksAfter(int afterId, int limit) {
+        return snapshot.getTasksAfter(afterId, checkLimit(limit));
+    }
+
+    @Override
+    public List<Epic> getEpicsAfter(int afterId, int limit) {
+        return snapshot.getEpicsAfter(afterId, checkLimit(limit));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksAfter(int afterId, int limit) {
+        return snapshot.getSubtasksAfter(afterId, checkLimit(limit));
+    }
+
+    static int checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Лимит не может быть отрицательным");
+        }
+        return limit;
+    }
+
+    // Обходятся только id с нужным статусом, а не всё хранилище
+    private static <T extends Task> List<T> collectByStatus(TaskStatusIndex index, TaskStatus status,
+                                                            IntObjectHashMap<T> store) {
+        List<T> result = new ArrayList<>(index.count(status));
+        index.forEach(status, id -> result.add(store.get(id)));
+        return result;
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        int[] ids = textIndex.search(query);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = tasks.get(id);
+            if (task == null) task = epics.get(id);
+            if (task == null) task = subtasks.get(id);
+            if (task != null) result.add(task);
+        }
+        return result;
     }
 
     @Override
@@ -110,183 +272,421 @@ public class InMemoryTaskManager implements TaskManager {
         if (task == null || !tasks.containsKey(task.getId()) || isTaskOverlapping(task)) {
             return false;
         }
-        removeFromPrioritizedTasks(tasks.get(task.getId()));
-        tasks.put(task.getId(), task);
-        addToPrioritizedTasks(task);
+        replaceTask(task);
+        publishSnapshot();
         return true;
     }
 
     @Override
     public boolean updateEpic(Epic epic) {
         if (epic == null || !epics.containsKey(epic.getId())) return false;
-        Epic savedEpic = epics.get(epic.getId());
-        savedEpic.setTitle(epic.getTitle());
-        savedEpic.setDescription(epic.getDescription());
+        renameEpic(epic);
+        publishSnapshot();
         return true;
     }
 
     @Override
     public boolean updateSubtask(Subtask subtask) {
-        if (subtask == null || !subtasks.containsKey(subtask.getId()) || isTaskOverlapping(subtask)) {
+        if (subtask == null || !subtasks.containsKey(subtask.getId()) || !epics.containsKey(subtask.getEpicId())
+                || isTaskOverlapping(subtask)) {
             return false;
         }
-        removeFromPrioritizedTasks(subtasks.get(subtask.getId()));
-        subtasks.put(subtask.getId(), subtask);
-        addToPrioritizedTasks(subtask);
-        updateEpicStatus(subtask.getEpicId());
-        updateEpicTime(subtask.getEpicId());
+        replaceSubtask(subtask, this::refreshEpic);
+        publishSnapshot();
         return true;
     }
 
     @Override
     public void deleteAllTasks() {
-        tasks.keySet().forEach(historyManager::remove);
+        tasks.forEachKey(historyManager::remove);
+        tasks.forEachKey(textIndex::remove);
         tasks.values().forEach(this::removeFromPrioritizedTasks);
         tasks.clear();
+        taskSet = taskSet.cleared();
+        taskStatuses.clear();
+        publishSnapshot();
     }
 
     @Override
     public void deleteAllEpics() {
-        epics.keySet().forEach(historyManager::remove);
-        subtasks.keySet().forEach(historyManager::remove);
+        epics.forEachKey(historyManager::remove);
+        subtasks.forEachKey(historyManager::remove);
+        epics.forEachKey(textIndex::remove);
+        subtasks.forEachKey(textIndex::remove);
         subtasks.values().forEach(this::removeFromPrioritizedTasks);
         epics.clear();
         subtasks.clear();
+        epicSet = epicSet.cleared();
+        subtaskSet = subtaskSet.cleared();
+        linkedSubtasks.clear();
+        epicStatuses.clear();
+        subtaskStatuses.clear();
+        publishSnapshot();
     }
 
     @Override
     public void deleteAllSubtasks() {
-        subtasks.keySet().forEach(historyManager::remove);
+        subtasks.forEachKey(historyManager::remove);
+        subtasks.forEachKey(textIndex::remove);
         subtasks.values().forEach(this::removeFromPrioritizedTasks);
         subtasks.clear();
-        epics.values().forEach(epic -> {
-            epic.clearSubtasks();
-            updateEpicStatus(epic.getId());
-            updateEpicTime(epic.getId());
-        });
+        subtaskSet = subtaskSet.cleared();
+        linkedSubtasks.clear();
+        subtaskStatuses.clear();
+        for (Epic epic : new ArrayList<>(epics.values())) {
+            editableEpic(epic.getId()).clearSubtasks();
+            refreshEpic(epic.getId());
+        }
+        publishSnapshot();
     }
 
     @Override
     public boolean deleteTask(int id) {
+        boolean deleted = removeTask(id) != null;
+        publishSnapshot();
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteEpic(int id) {
+        boolean deleted = removeEpic(id) != null;
+        publishSnapshot();
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteSubtask(int id) {
+        boolean deleted = removeSubtask(id, this::refreshEpic) != null;
+        publishSnapshot();
+        return deleted;
+    }
+
+    /**
+     * Операции применяются по порядку без сохранения после каждой. Сначала один проход сортировкой
+     * и заметанием находит пересечения задач пакета между собой: такие операции получают CONFLICT
+     * и не применяются. Остальные проверяются на пересечение с расписанием на момент своей очереди.
+     * Затронутые эпики пересчитываются один раз в конце.
+     */
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        boolean[] conflicts = findBatchConflicts(operations);
+        DenseIntSet touchedEpics = new DenseIntSet();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            results.add(conflicts[i]
+                    ? BatchResult.of(BatchResult.Status.CONFLICT)
+                    : applyOperation(operations.get(i), touchedEpics::add));
+        }
+        touchedEpics.forEach(this::refreshEpic);
+        publishSnapshot();
+        return results;
+    }
+
+    private BatchResult applyOperation(BatchOperation operation, IntConsumer touchedEpics) {
+        if (operation == null || operation.getAction() == null) {
+            return BatchResult.of(BatchResult.Status.INVALID);
+        }
+        if (operation.getAction() == BatchOperation.Action.DELETE) {
+            Task removed = removeTask(operation.getId());
+            if (removed == null) removed = removeEpic(operation.getId());
+            if (removed == null) removed = removeSubtask(operation.getId(), touchedEpics);
+            return removed != null ? BatchResult.applied(removed) : BatchResult.of(BatchResult.Status.NOT_FOUND);
+        }
+
+        Task task = operation.getTask();
+        if (task == null) return BatchResult.of(BatchResult.Status.INVALID);
+        boolean create = operation.getAction() == BatchOperation.Action.CREATE;
+        // Вид определяется по классу: у задачи, пришедшей из JSON, поле type может быть не заполнено
+        if (task instanceof Epic) {
+            if (create) {
+                insertEpic((Epic) task);
+                return BatchResult.applied(task);
+            }
+            if (!epics.containsKey(task.getId())) return BatchResult.of(BatchResult.Status.NOT_FOUND);
+            renameEpic((Epic) task);
+            return BatchResult.applied(epics.get(task.getId()));
+        }
+        if (task instanceof Subtask) {
+            Subtask subtask = (Subtask) task;
+            if (!epics.containsKey(subtask.getEpicId()) || !create && !subtasks.containsKey(subtask.getId())) {
+                return BatchResult.of(BatchResult.Status.NOT_FOUND);
+            }
+            if (isTaskOverlapping(subtask)) return BatchResult.of(BatchResult.Status.OVERLAP);
+            if (create) {
+                insertSubtask(subtask);
+                touchedEpics.accept(subtask.getEpicId());
+            } else {
+                replaceSubtask(subtask, touchedEpics);
+            }
+            return BatchResult.applied(subtask);
+        }
+
+        if (!create && !tasks.containsKey(task.getId())) return BatchResult.of(BatchResult.Status.NOT_FOUND);
+        if (isTaskOverlapping(task)) return BatchResult.of(BatchResult.Status.OVERLAP);
+        if (create) {
+            insertTask(task);
+        } else {
+            replaceTask(task);
+        }
+        return BatchResult.applied(task);
+    }
+
+    // Отмечает операции, чьи интервалы пересекаются с интервалом другой операции пакета.
+    // После сортировки по началу интервал пересекается с кем-то, если следующий начинается
+    // не позже его конца или максимальный конец предыдущих не раньше его начала
+    private static boolean[] findBatchConflicts(List<BatchOperation> operations) {
+        boolean[] conflicts = new boolean[operations.size()];
+        List<Integer> timed = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            if (operation != null && operation.getAction() != BatchOperation.Action.DELETE
+                    && operation.getTask() != null && !(operation.getTask() instanceof Epic)
+                    && operation.getTask().getStartTime() != null) {
+                timed.add(i);
+            }
+        }
+        timed.sort(Comparator.comparing(i -> operations.get(i).getTask().getStartTime()));
+
+        LocalDateTime maxEnd = null;
+        for (int k = 0; k < timed.size(); k++) {
+            Task task = operations.get(timed.get(k)).getTask();
+            LocalDateTime start = task.getStartTime();
+            LocalDateTime end = endOf(task);
+            boolean overlapsPrevious = maxEnd != null && !maxEnd.isBefore(start);
+            boolean overlapsNext = k + 1 < timed.size()
+                    && !operations.get(timed.get(k + 1)).getTask().getStartTime().isAfter(end);
+            if (overlapsPrevious || overlapsNext) {
+                conflicts[timed.get(k)] = true;
+            }
+            if (maxEnd == null || end.isAfter(maxEnd)) {
+                maxEnd = end;
+            }
+        }
+        return conflicts;
+    }
+
+    private static LocalDateTime endOf(Task task) {
+        LocalDateTime end = task.getEndTime();
+        return end != null ? end : task.getStartTime();
+    }
+
+    // Пересчёт статуса и времени эпика после изменения его подзадач
+    private void refreshEpic(int epicId) {
+        recalculateEpicStatus(epicId);
+        recalculateEpicTime(epicId);
+    }
+
+    private void insertTask(Task task) {
+        task.setId(nextId++);
+        tasks.put(task.getId(), task);
+        taskSet = taskSet.plus(task);
+        addToPrioritizedTasks(task);
+        taskStatuses.put(task.getId(), task.getStatus());
+        textIndex.put(task.getId(), task.getTitle(), task.getDescription());
+    }
+
+    private void insertEpic(Epic epic) {
+        epic.setId(nextId++);
+        epics.put(epic.getId(), epic);
+        epicSet = epicSet.plus(epic);
+        epicStatuses.put(epic.getId(), epic.getStatus());
+        textIndex.put(epic.getId(), epic.getTitle(), epic.getDescription());
+    }
+
+    // Эпик подзадачи должен существовать; пересчёт эпика остаётся вызывающему
+    private void insertSubtask(Subtask subtask) {
+        subtask.setId(nextId++);
+        subtasks.put(subtask.getId(), subtask);
+        subtaskSet = subtaskSet.plus(subtask);
+        addToPrioritizedTasks(subtask);
+        subtaskStatuses.put(subtask.getId(), subtask.getStatus());
+        textIndex.put(subtask.getId(), subtask.getTitle(), subtask.getDescription());
+        linkSubtask(epics.get(subtask.getEpicId()), subtask);
+    }
+
+    private void replaceTask(Task task) {
+        removeFromPrioritizedTasks(tasks.get(task.getId()));
+        tasks.put(task.getId(), task);
+        taskSet = taskSet.plus(task);
+        addToPrioritizedTasks(task);
+        taskStatuses.put(task.getId(), task.getStatus());
+        textIndex.put(task.getId(), task.getTitle(), task.getDescription());
+    }
+
+    private void renameEpic(Epic epic) {
+        Epic savedEpic = editableEpic(epic.getId());
+        savedEpic.setTitle(epic.getTitle());
+        savedEpic.setDescription(epic.getDescription());
+        textIndex.put(savedEpic.getId(), savedEpic.getTitle(), savedEpic.getDescription());
+    }
+
+    private void replaceSubtask(Subtask subtask, IntConsumer touchedEpics) {
+        Subtask oldSubtask = subtasks.get(subtask.getId());
+        removeFromPrioritizedTasks(oldSubtask);
+        subtasks.put(subtask.getId(), subtask);
+        subtaskSet = subtaskSet.plus(subtask);
+        addToPrioritizedTasks(subtask);
+        subtaskStatuses.put(subtask.getId(), subtask.getStatus());
+        textIndex.put(subtask.getId(), subtask.getTitle(), subtask.getDescription());
+
+        if (oldSubtask.getEpicId() != subtask.getEpicId()) {
+            Epic oldEpic = epics.get(oldSubtask.getEpicId());
+            if (oldEpic != null) {
+                unlinkSubtask(oldEpic, subtask.getId());
+                touchedEpics.accept(oldEpic.getId());
+            }
+        }
+        linkSubtask(epics.get(subtask.getEpicId()), subtask);
+        touchedEpics.accept(subtask.getEpicId());
+    }
+
+    private Task removeTask(int id) {
         Task task = tasks.remove(id);
         if (task != null) {
+            taskSet = taskSet.minus(task);
             removeFromPrioritizedTasks(task);
+            taskStatuses.remove(id);
+            textIndex.remove(id);
             historyManager.remove(id);
-            return true;
         }
-        return false;
+        return task;
     }
 
-    @Override
-    public boolean deleteEpic(int id) {
+    private Epic removeEpic(int id) {
         Epic epic = epics.remove(id);
-        if (epic == null) return false;
+        if (epic == null) return null;
 
+        epicSet = epicSet.minus(epic);
         epic.getSubtaskIds().forEach(subtaskId -> {
-            Task subtask = subtasks.remove(subtaskId);
+            Subtask subtask = subtasks.remove(subtaskId);
             if (subtask != null) {
+                subtaskSet = subtaskSet.minus(subtask);
                 removeFromPrioritizedTasks(subtask);
             }
+            linkedSubtasks.remove(subtaskId);
+            subtaskStatuses.remove(subtaskId);
+            textIndex.remove(subtaskId);
             historyManager.remove(subtaskId);
         });
+        epicStatuses.remove(id);
+        textIndex.remove(id);
         historyManager.remove(id);
-        return true;
+        return epic;
     }
 
-    @Override
-    public boolean deleteSubtask(int id) {
+    private Subtask removeSubtask(int id, IntConsumer touchedEpics) {
         Subtask subtask = subtasks.remove(id);
-        if (subtask == null) return false;
+        if (subtask == null) return null;
 
+        subtaskSet = subtaskSet.minus(subtask);
         removeFromPrioritizedTasks(subtask);
+        subtaskStatuses.remove(id);
+        textIndex.remove(id);
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
-            epic.removeSubtask(id);
-            updateEpicStatus(epic.getId());
-            updateEpicTime(epic.getId());
+            unlinkSubtask(epic, id);
+            touchedEpics.accept(epic.getId());
         }
         historyManager.remove(id);
-        return true;
+        return subtask;
     }
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        return snapshot.getPrioritizedTasks();
     }
 
     @Override
-    public boolean isTaskOverlapping(Task task) {
-        if (task.getStartTime() == null) return false;
-        return prioritizedTasks.stream()
-                .filter(existingTask -> existingTask.getId() != task.getId())
-                .anyMatch(existingTask -> isTasksOverlap(task, existingTask));
-    }
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Лимит не может быть отрицательным");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            return new ArrayList<>();
+        }
 
-    @Override
-    public void updateEpicTime(int epicId) {
-        Epic epic = epics.get(epicId);
-        if (epic == null) return;
+        // Представление subSet не копирует дерево: обходится только окно
+        NavigableSet<Task> window = prioritizedTasks;
+        if (from != null) {
+            window = window.tailSet(timeProbe(from), true);
+        }
+        if (to != null) {
+            window = window.headSet(timeProbe(to), false);
+        }
 
-        List<Subtask> subtasks = getSubtasksByEpic(epicId);
-        if (subtasks.isEmpty()) {
-            epic.setStartTime(null);
-            epic.setDuration(Duration.ZERO);
-            return;
+        List<Task> result = new ArrayList<>(Math.min(limit, 64));
+        for (Iterator<Task> iterator = window.iterator(); iterator.hasNext() && result.size() < limit; ) {
+            result.add(iterator.next());
         }
+        return result;
+    }
 
-        LocalDateTime earliestStart = null;
-        LocalDateTime latestEnd = null;
-        Duration totalDuration = Duration.ZERO;
-        boolean hasTimeInfo = false;
+    // Образец для поиска в prioritizedTasks: компаратор смотрит только на время начала
+    private static Task timeProbe(LocalDateTime startTime) {
+        Task probe = new Task("", "");
+        probe.setStartTime(startTime);
+        return probe;
+    }
 
-        for (Subtask subtask : subtasks) {
-            if (subtask.getStartTime() != null && subtask.getDuration() != null) {
-                hasTimeInfo = true;
-                LocalDateTime start = subtask.getStartTime();
-                LocalDateTime end = start.plus(subtask.getDuration());
+    @Override
+    public boolean isTaskOverlapping(Task task) {
+        if (task.getStartTime() == null) return false;
+        return intervalIndex.hasOverlap(task.getStartTime(), task.getEndTime(), task.getId());
+    }
 
-                if (earliestStart == null || start.isBefore(earliestStart)) {
-                    earliestStart = start;
-                }
+    @Override
+    public void updateEpicTime(int epicId) {
+        recalculateEpicTime(epicId);
+        publishSnapshot();
+    }
 
-                if (latestEnd == null || end.isAfter(latestEnd)) {
-                    latestEnd = end;
-                }
+    @Override
+    public void updateEpicStatus(int epicId) {
+        recalculateEpicStatus(epicId);
+        publishSnapshot();
+    }
 
-                totalDuration = totalDuration.plus(subtask.getDuration());
-            }
-        }
+    private void recalculateEpicTime(int epicId) {
+        Epic epic = editableEpic(epicId);
+        if (epic == null) return;
 
-        if (hasTimeInfo) {
-            epic.setStartTime(earliestStart);
-            epic.setDuration(totalDuration); // Сумма продолжительностей
-        } else {
-            epic.setStartTime(null);
-            epic.setDuration(Duration.ZERO);
-        }
+        epic.refreshTimeParameters();
     }
 
-    @Override
-    public void updateEpicStatus(int epicId) {
+    private void recalculateEpicStatus(int epicId) {
         Epic epic = epics.get(epicId);
         if (epic == null) return;
 
-        List<Subtask> subtasks = getSubtasksByEpic(epicId);
-        if (subtasks.isEmpty()) {
-            epic.setStatus(TaskStatus.NEW);
-            return;
+        TaskStatus status = epic.calculateStatus();
+        if (epic.getStatus() != status) {
+            editableEpic(epicId).setStatus(status);
         }
+        epicStatuses.put(epicId, status);
+    }
 
-        boolean allNew = subtasks.stream().allMatch(s -> s.getStatus() == TaskStatus.NEW);
-        boolean allDone = subtasks.stream().allMatch(s -> s.getStatus() == TaskStatus.DONE);
+    /**
+     * Пересчитывает статус эпика по всем подзадачам и сверяет его со счётчиками. Используется в тестах.
+     */
+    public boolean isEpicStatusConsistent(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null) return true;
 
-        if (allNew) {
-            epic.setStatus(TaskStatus.NEW);
-        } else if (allDone) {
-            epic.setStatus(TaskStatus.DONE);
+        List<Subtask> subtasks = getSubtasksByEpic(epicId);
+        TaskStatus expected;
+        if (subtasks.stream().allMatch(s -> s.getStatus() == TaskStatus.NEW)) {
+            expected = TaskStatus.NEW;
+        } else if (subtasks.stream().allMatch(s -> s.getStatus() == TaskStatus.DONE)) {
+            expected = TaskStatus.DONE;
         } else {
-            epic.setStatus(TaskStatus.IN_PROGRESS);
+            expected = TaskStatus.IN_PROGRESS;
         }
+
+        long newCount = subtasks.stream().filter(s -> s.getStatus() == TaskStatus.NEW).count();
+        long doneCount = subtasks.stream().filter(s -> s.getStatus() == TaskStatus.DONE).count();
+        return epic.getStatus() == expected
+                && epic.getSubtaskStatusCount(TaskStatus.NEW) == newCount
+                && epic.getSubtaskStatusCount(TaskStatus.DONE) == doneCount
+                && epic.getSubtaskStatusCount(TaskStatus.IN_PROGRESS) == subtasks.size() - newCount - doneCount;
     }
 
     @Override
@@ -303,30 +703,146 @@ public class InMemoryTaskManager implements TaskManager {
         return null;
     }
 
+    // Эпик должен быть сохранён в менеджере: меняется его копия из editableEpic
+    protected void linkSubtask(Epic savedEpic, Subtask subtask) {
+        Epic epic = editableEpic(savedEpic.getId());
+        epic.addSubtask(subtask.getId());
+        LinkedSubtask previous = linkedSubtasks.put(subtask.getId(), new LinkedSubtask(subtask));
+        if (previous != null) {
+            previous.detachFrom(epic);
+        }
+        epic.countSubtaskStatus(subtask.getStatus(), 1);
+        epic.addSubtaskTime(subtask.getStartTime(), subtask.getDuration());
+    }
+
+    protected void unlinkSubtask(Epic savedEpic, int subtaskId) {
+        Epic epic = editableEpic(savedEpic.getId());
+        epic.removeSubtask(subtaskId);
+        LinkedSubtask previous = linkedSubtasks.remove(subtaskId);
+        if (previous != null) {
+            previous.detachFrom(epic);
+        }
+    }
+
+    protected static class LinkedSubtask {
+        private final TaskStatus status;
+        private final LocalDateTime startTime;
+        private final Duration duration;
+
+        LinkedSubtask(Subtask subtask) {
+            this.status = subtask.getStatus();
+            this.startTime = subtask.getStartTime();
+            this.duration = subtask.getDuration();
+        }
+
+        void detachFrom(Epic epic) {
+            epic.countSubtaskStatus(status, -1);
+            epic.removeSubtaskTime(startTime, duration);
+        }
+    }
+
+    // Задачи берутся из карт, а не из prioritizedTasks: после загрузки файла там может не оказаться
+    // задачи с тем же временем начала, что у другой, а именно такие пары и нужно найти
+    @Override
+    public void forEachConflict(BiConsumer<Task, Task> action) {
+        List<Task> candidates = new ArrayList<>(tasks.size() + subtasks.size());
+        candidates.addAll(tasks.values());
+        candidates.addAll(subtasks.values());
+        forEachConflict(candidates, action);
+    }
+
+    /**
+     * Проход заметающей прямой по задачам со временем начала. Обёртки вызывают его уже без блокировки
+     * для копий задач, чтобы медленный потребитель пар не задерживал запись.
+     */
+    static void forEachConflict(List<? extends Task> candidates, BiConsumer<Task, Task> action) {
+        List<Task> timed = new ArrayList<>();
+        for (Task task : candidates) {
+            if (task.getStartTime() != null) timed.add(task);
+        }
+        timed.sort(Comparator.comparing(Task::getStartTime).thenComparingInt(Task::getId));
+
+        // Активные задачи, упорядоченные по концу: все они пересекаются с текущей
+        PriorityQueue<Task> active = new PriorityQueue<>(Comparator.comparing(InMemoryTaskManager::endOf));
+        for (Task task : timed) {
+            while (!active.isEmpty() && endOf(active.peek()).isBefore(task.getStartTime())) {
+                active.poll();
+            }
+            for (Task other : active) {
+                action.accept(other, task);
+            }
+            active.add(task);
+        }
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime notBefore, Duration duration) {
+        return intervalIndex.findFreeSlot(notBefore, duration);
+    }
+
+    @Override
+    public List<Task> autoSchedule(List<Integer> taskIds, LocalDateTime notBefore) {
+        if (notBefore == null) {
+            throw new IllegalArgumentException("Не задано время начала планирования");
+        }
+        List<Task> scheduled = new ArrayList<>();
+        for (int id : taskIds) {
+            Task saved = tasks.get(id);
+            if (saved == null) saved = subtasks.get(id);
+            if (saved == null || saved.getStartTime() != null) continue;
+
+            // Каждое следующее окно ищется уже с учётом только что поставленных задач.
+            // Время ставится копии: сохранённую задачу видит опубликованный снимок
+            Task task = saved.copy();
+            task.setStartTime(intervalIndex.findFreeSlot(notBefore, task.getDuration()));
+            if (task instanceof Subtask subtask) {
+                subtasks.put(id, subtask);
+                subtaskSet = subtaskSet.plus(subtask);
+                addToPrioritizedTasks(subtask);
+                linkSubtask(epics.get(subtask.getEpicId()), subtask);
+            } else {
+                tasks.put(id, task);
+                taskSet = taskSet.plus(task);
+                addToPrioritizedTasks(task);
+            }
+            scheduled.add(task);
+        }
+        publishSnapshot();
+        return scheduled;
+    }
+
     protected boolean isTasksOverlap(Task task1, Task task2) {
         if (task1 == task2 || task1.getStartTime() == null || task2.getStartTime() == null) {
             return false;
         }
         LocalDateTime start1 = task1.getStartTime();
-        LocalDateTime end1 = task1.getEndTime();
+        LocalDateTime end1 = endOf(task1);
         LocalDateTime start2 = task2.getStartTime();
-        LocalDateTime end2 = task2.getEndTime();
+        LocalDateTime end2 = endOf(task2);
 
         return !(end1.isBefore(start2) || end2.isBefore(start1));
     }
 
     protected void addToPrioritizedTasks(Task task) {
         if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
+            if (prioritizedTasks.add(task)) {
+                prioritizedSet = prioritizedSet.plus(task);
+            }
+            intervalIndex.add(task);
         }
     }
 
+    // Дерево удаляет задачу с тем же временем начала, копия повторяет это
     protected void removeFromPrioritizedTasks(Task task) {
-        prioritizedTasks.remove(task);
+        if (prioritizedTasks.remove(task)) {
+            prioritizedSet = prioritizedSet.minus(task);
+        }
+        intervalIndex.remove(task.getId());
     }
 
+    // История из того же снимка, что и коллекции: задачи в ней - их текущие версии
     @Override
     public List<Task> getHistory() {
-        return historyManager.getHistory();
+        return snapshot.getHistory();
     }
 }
\ No newline at end of file
@@ -0,0 +1,382 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+import model.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Менеджер с журналом операций: каждое изменение и просмотр дописываются в конец журнала одной строкой,
+ * а после compactionThreshold записей состояние сжимается в снимок в формате FileBackedTaskManager
+ * и журнал начинается заново. При загрузке читается снимок, затем проигрывается хвост журнала.
+ */
+public class JournaledTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DELETE";
+    private static final String DELETE_ALL = "DELETE_ALL";
+    private static final String VIEW = "VIEW";
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final int compactionThreshold;
+    private BufferedWriter journal;
+    private int journalRecords;
+    private boolean replaying;
+
+    public JournaledTaskManager(File snapshotFile, int compactionThreshold) {
+        this(snapshotFile, compactionThreshold, Managers.getDefaultHistory());
+    }
+
+    public JournaledTaskManager(File snapshotFile, int compactionThreshold, HistoryManager historyManager) {
+        super(historyManager);
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("Порог сжатия журнала должен быть не менее 1");
+        }
+        this.snapshotFile = snapshotFile;
+        this.journalFile = new File(snapshotFile.getPath() + JOURNAL_SUFFIX);
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public static JournaledTaskManager loadFromFile(File snapshotFile, int compactionThreshold) {
+        JournaledTaskManager manager = new JournaledTaskManager(snapshotFile, compactionThreshold);
+        if (snapshotFile.exists()) {
+            FileBackedTaskManager.load(manager, snapshotFile);
+        }
+        manager.replayJournal();
+        return manager;
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Записывает снимок текущего состояния и очищает журнал.
+     */
+    public void compact() {
+        try {
+            closeJournal();
+            Path tmp = new File(snapshotFile.getPath() + ".tmp").toPath();
+            Files.writeString(tmp, FileBackedTaskManager.buildFileContent(this));
+            Files.move(tmp, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal = Files.newBufferedWriter(journalFile.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            journalRecords = 0;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сжатия журнала", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            closeJournal();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка закрытия журнала", e);
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = super.getTask(id);
+        if (task != null) append(VIEW, String.valueOf(id));
+        return task;
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = super.getEpic(id);
+        if (epic != null) append(VIEW, String.valueOf(id));
+        return epic;
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = super.getSubtask(id);
+        if (subtask != null) append(VIEW, String.valueOf(id));
+        return subtask;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        Task created = super.createTask(task);
+        if (created != null) append(PUT, FileBackedTaskManager.toString(created));
+        return created;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        Epic created = super.createEpic(epic);
+        if (created != null) append(PUT, FileBackedTaskManager.toString(created));
+        return created;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        Subtask created = super.createSubtask(subtask);
+        if (created != null) append(PUT, FileBackedTaskManager.toString(created));
+        return created;
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        boolean updated = super.updateTask(task);
+        if (updated) append(PUT, FileBackedTaskManager.toString(task));
+        return updated;
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic) {
+        boolean updated = super.updateEpic(epic);
+        if (updated) append(PUT, FileBackedTaskManager.toString(epics.get(epic.getId())));
+        return updated;
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask) {
+        boolean updated = super.updateSubtask(subtask);
+        if (updated) append(PUT, FileBackedTaskManager.toString(subtask));
+        return updated;
+    }
+
+    @Override
+    public List<Task> autoSchedule(List<Integer> taskIds, LocalDateTime notBefore) {
+        List<Task> scheduled = super.autoSchedule(taskIds, notBefore);
+        for (Task task : scheduled) {
+            append(PUT, FileBackedTaskManager.toString(task));
+        }
+        return scheduled;
+    }
+
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        List<BatchResult> results = super.applyBatch(operations);
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (!results.get(i).isApplied()) continue;
+
+            Task task = results.get(i).getTask();
+            if (operations.get(i).getAction() == BatchOperation.Action.DELETE) {
+                TaskType type = task instanceof Epic ? TaskType.EPIC
+                        : task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK;
+                records.add(DELETE + "," + type.name() + "," + task.getId());
+            } else {
+                records.add(PUT + "," + FileBackedTaskManager.toString(task));
+            }
+        }
+        append(records);
+        return results;
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        super.deleteAllTasks();
+        append(DELETE_ALL, TaskType.TASK.name());
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        super.deleteAllEpics();
+        append(DELETE_ALL, TaskType.EPIC.name());
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        super.deleteAllSubtasks();
+        append(DELETE_ALL, TaskType.SUBTASK.name());
+    }
+
+    @Override
+    public boolean deleteTask(int id) {
+        boolean deleted = super.deleteTask(id);
+        if (deleted) append(DELETE, TaskType.TASK.name() + "," + id);
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteEpic(int id) {
+        boolean deleted = super.deleteEpic(id);
+        if (deleted) append(DELETE, TaskType.EPIC.name() + "," + id);
+        return deleted;
+    }
+
+    @Override
+    public boolean deleteSubtask(int id) {
+        boolean deleted = super.deleteSubtask(id);
+        if (deleted) append(DELETE, TaskType.SUBTASK.name() + "," + id);
+        return deleted;
+    }
+
+    private void append(String operation, String payload) {
+        append(List.of(operation + "," + payload));
+    }
+
+    // Записи пакета дописываются и сбрасываются на диск вместе
+    private void append(List<String> records) {
+        if (replaying || records.isEmpty()) return;
+
+        try {
+            if (journal == null) {
+                journal = Files.newBufferedWriter(journalFile.toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (String record : records) {
+                journal.write(record);
+                journal.write('\n');
+            }
+            journal.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал", e);
+        }
+
+        journalRecords += records.size();
+        if (journalRecords >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private void replayJournal() {
+        if (!journalFile.exists()) return;
+
+        byte[] data;
+        try {
+            data = Files.readAllBytes(journalFile.toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала", e);
+        }
+
+        // Запись считается дописанной, только если за ней стоит перевод строки. Хвост без него
+        // мог оборваться где угодно, в том числе так, что строка всё равно разбирается
+        int complete = data.length;
+        while (complete > 0 && data[complete - 1] != '\n') complete--;
+        boolean corrupted = complete < data.length;
+        String[] records = complete == 0 ? new String[0]
+                : new String(data, 0, complete - 1, StandardCharsets.UTF_8).split("\n", -1);
+
+        replaying = true;
+        try {
+            for (String record : records) {
+                try {
+                    corrupted |= !replay(record);
+                } catch (RuntimeException e) {
+                    corrupted = true;
+                }
+            }
+        } finally {
+            replaying = false;
+        }
+        journalRecords = records.length;
+
+        // Новые записи нельзя дописывать после оборванной строки
+        if (corrupted) {
+            System.err.println("Журнал содержит повреждённые записи, выполняется сжатие: " + journalFile);
+            compact();
+        }
+    }
+
+    private boolean replay(String record) {
+        int separator = record.indexOf(',');
+        if (separator < 0) return false;
+
+        String operation = record.substring(0, separator);
+        String payload = record.substring(separator + 1);
+
+        switch (operation) {
+            case PUT:
+                Task task = FileBackedTaskManager.fromString(payload);
+                if (task == null) return false;
+                replayPut(task);
+                break;
+            case DELETE:
+                String[] fields = payload.split(",");
+                int id = Integer.parseInt(fields[1]);
+                switch (TaskType.valueOf(fields[0])) {
+                    case TASK:
+                        deleteTask(id);
+                        break;
+                    case EPIC:
+                        deleteEpic(id);
+                        break;
+                    case SUBTASK:
+                        deleteSubtask(id);
+                        break;
+                }
+                break;
+            case DELETE_ALL:
+                switch (TaskType.valueOf(payload)) {
+                    case TASK:
+                        deleteAllTasks();
+                        break;
+                    case EPIC:
+                        deleteAllEpics();
+                        break;
+                    case SUBTASK:
+                        deleteAllSubtasks();
+                        break;
+                }
+                break;
+            case VIEW:
+                int viewedId = Integer.parseInt(payload);
+                if (getTask(viewedId) == null && getEpic(viewedId) == null) {
+                    getSubtask(viewedId);
+                }
+                break;
+            default:
+                return false;
+        }
+        return true;
+    }
+
+    private void replayPut(Task task) {
+        switch (task.getType()) {
+            case TASK:
+                if (tasks.containsKey(task.getId())) {
+                    updateTask(task);
+                } else {
+                    createWithId(task.getId(), () -> createTask(task));
+                }
+                break;
+            case EPIC:
+                if (epics.containsKey(task.getId())) {
+                    updateEpic((Epic) task);
+                } else {
+                    createWithId(task.getId(), () -> createEpic((Epic) task));
+                }
+                break;
+            case SUBTASK:
+                if (subtasks.containsKey(task.getId())) {
+                    updateSubtask((Subtask) task);
+                } else {
+                    createWithId(task.getId(), () -> createSubtask((Subtask) task));
+                }
+                break;
+        }
+    }
+
+    // Создание при проигрывании должно получить тот же id, что и при исходной записи
+    private void createWithId(int id, Supplier<Task> create) {
+        int savedNextId = nextId;
+        nextId = id;
+        create.get();
+        nextId = Math.max(savedNextId, id + 1);
+    }
+}
@@ -1,11 +1,65 @@
 package manager;
 
+import exceptions.ManagerSaveException;
+
 public class Managers {
     public static TaskManager getDefault() {
         return new InMemoryTaskManager(getDefaultHistory());
     }
 
+    // История хранит не больше historySize последних просмотров
+    public static TaskManager getDefault(int historySize) {
+        return new InMemoryTaskManager(getDefaultHistory(historySize));
+    }
+
+    public static TaskManager getSynchronized(TaskManager taskManager) {
+        if (isThreadSafe(taskManager)) {
+            return taskManager;
+        }
+        return new SynchronizedTaskManager(taskManager);
+    }
+
+    // Для нагрузки с преобладанием чтений: читатели не ждут друг друга
+    public static TaskManager getConcurrent(TaskManager taskManager) {
+        if (isThreadSafe(taskManager)) {
+            return taskManager;
+        }
+        return new StampedLockTaskManager(taskManager);
+    }
+
+    // Изменения применяет один поток пачками, чтения идут из неизменяемого снимка
+    public static EventLoopTaskManager getEventLoop(TaskManager taskManager) {
+        if (taskManager instanceof EventLoopTaskManager) {
+            return (EventLoopTaskManager) taskManager;
+        }
+        return new EventLoopTaskManager(taskManager);
+    }
+
+    private static boolean isThreadSafe(TaskManager taskManager) {
+        return taskManager instanceof SynchronizedTaskManager
+                || taskManager instanceof StampedLockTaskManager
+                || taskManager instanceof EventLoopTaskManager;
+    }
+
+    // Закрытие обёрток: проверяемые исключения исходного менеджера заворачиваются в ManagerSaveException
+    static void close(TaskManager taskManager) {
+        if (!(taskManager instanceof AutoCloseable closeable)) return;
+
+        try {
+            closeable.close();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ошибка закрытия менеджера", e);
+        }
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    public static HistoryManager getDefaultHistory(int maxSize) {
+        return new InMemoryHistoryManager(maxSize);
+    }
 }
\ No newline at end of file
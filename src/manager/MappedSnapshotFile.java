@@ -0,0 +1,328 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+import model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Файл снимка с фиксированной раскладкой, который читается через FileChannel.map без разбора целиком.
+ * Заголовок (32 байта): сигнатура KBMM, версия, число записей, длина истории, смещения индекса и истории.
+ * Записи: 44 байта фиксированных полей, затем название, описание и id подзадач эпика.
+ * Индекс: пары (id, смещение) по 12 байт, отсортированные по id; поиск идёт двоичным поиском прямо по отображению,
+ * поэтому открытие файла не зависит от числа записей. История лежит в конце и переписывается на месте
+ * (patchHistory), не трогая записи; после сбоя за ней могут остаться байты прежней истории.
+ */
+class MappedSnapshotFile {
+    static final byte[] MAGIC = {'K', 'B', 'M', 'M'};
+    static final int VERSION = 1;
+    static final byte[] HISTORY_MAGIC = {'K', 'B', 'M', 'H'};
+
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = 44;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    private static final int HAS_START = 1;
+    private static final int HAS_DURATION = 1 << 1;
+
+    private final MappedByteBuffer buffer;
+    private final int recordCount;
+    private final int historyCount;
+    private final int indexOffset;
+    private final int historyOffset;
+
+    private MappedSnapshotFile(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.capacity() < HEADER_SIZE || buffer.get(i) != MAGIC[i]) {
+                throw new ManagerSaveException("Файл не является снимком с фиксированной раскладкой");
+            }
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия снимка: " + version);
+        }
+        this.recordCount = buffer.getInt(8);
+        this.historyCount = buffer.getInt(12);
+        long indexOffset = buffer.getLong(16);
+        long historyOffset = buffer.getLong(24);
+        if (recordCount < 0 || historyCount < 0
+                || indexOffset + (long) recordCount * INDEX_ENTRY_SIZE != historyOffset
+                || historyOffset + (long) historyCount * Integer.BYTES > buffer.capacity()) {
+            throw new ManagerSaveException("Повреждённый заголовок снимка");
+        }
+        this.indexOffset = (int) indexOffset;
+        this.historyOffset = (int) historyOffset;
+    }
+
+    static MappedSnapshotFile open(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("Снимок больше 2 ГБ не поддерживается: " + file);
+            }
+            // Отображение остаётся действительным и после закрытия канала
+            return new MappedSnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки из файла", e);
+        }
+    }
+
+    static boolean isMapped(byte[] head) {
+        return Arrays.equals(head, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    static <T extends InMemoryTaskManager> T load(T manager, File file) {
+        MappedSnapshotFile snapshot = open(file);
+        List<Task> parsed = new ArrayList<>(snapshot.size());
+        try {
+            for (int i = 0; i < snapshot.size(); i++) {
+                parsed.add(snapshot.decode(snapshot.offsetAt(i)));
+            }
+        } catch (RuntimeException e) {
+            throw new ManagerSaveException("Повреждённый снимок", e);
+        }
+        FileBackedTaskManager.restore(manager, parsed, snapshot.historyIds());
+        return manager;
+    }
+
+    int size() {
+        return recordCount;
+    }
+
+    int[] historyIds() {
+        int[] ids = new int[historyCount];
+        for (int i = 0; i < historyCount; i++) {
+            ids[i] = buffer.getInt(historyOffset + i * Integer.BYTES);
+        }
+        return ids;
+    }
+
+    /**
+     * Смещение записи с данным id или -1.
+     */
+    int find(int id) {
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = buffer.getInt(indexOffset + middle * INDEX_ENTRY_SIZE);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return offsetAt(middle);
+            }
+        }
+        return -1;
+    }
+
+    int idAt(int indexPosition) {
+        return buffer.getInt(indexOffset + indexPosition * INDEX_ENTRY_SIZE);
+    }
+
+    int offsetAt(int indexPosition) {
+        return (int) buffer.getLong(indexOffset + indexPosition * INDEX_ENTRY_SIZE + Integer.BYTES);
+    }
+
+    TaskType typeAt(int offset) {
+        return BinarySnapshotCodec.typeOf(buffer.get(offset + 4));
+    }
+
+    int[] subtaskIdsAt(int offset) {
+        int titleLength = Math.max(0, buffer.getInt(offset + 32));
+        int descriptionLength = Math.max(0, buffer.getInt(offset + 36));
+        int count = buffer.getInt(offset + 40);
+        int position = offset + RECORD_HEADER_SIZE + titleLength + descriptionLength;
+        // Повреждённое число подзадач не должно приводить к выделению огромного массива
+        if (count < 0 || count > (buffer.capacity() - position) / Integer.BYTES) {
+            throw new IllegalArgumentException("Число подзадач больше, чем помещается в файле: " + count);
+        }
+        int[] ids = new int[count];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = buffer.getInt(position + i * Integer.BYTES);
+        }
+        return ids;
+    }
+
+    /**
+     * Создаёт задачу по записи. У эпика заполняется только список подзадач: время и счётчики
+     * восстанавливает менеджер.
+     */
+    Task decode(int offset) {
+        int id = buffer.getInt(offset);
+        TaskType type = typeAt(offset);
+        TaskStatus status = BinarySnapshotCodec.statusOf(buffer.get(offset + 5));
+        int flags = buffer.getShort(offset + 6);
+        int epicId = buffer.getInt(offset + 8);
+        LocalDateTime startTime = (flags & HAS_START) != 0
+                ? LocalDateTime.ofEpochSecond(buffer.getLong(offset + 12), buffer.getInt(offset + 20), ZoneOffset.UTC)
+                : null;
+        Duration duration = (flags & HAS_DURATION) != 0 ? Duration.ofMinutes(buffer.getLong(offset + 24)) : null;
+        int titleLength = buffer.getInt(offset + 32);
+        int descriptionLength = buffer.getInt(offset + 36);
+
+        int position = offset + RECORD_HEADER_SIZE;
+        String title = readString(position, titleLength);
+        position += Math.max(0, titleLength);
+        String description = readString(position, descriptionLength);
+
+        Task task;
+        switch (type) {
+            case EPIC:
+                Epic epic = new Epic(title, description);
+                for (int subtaskId : subtaskIdsAt(offset)) {
+                    epic.addSubtask(subtaskId);
+                }
+                task = epic;
+                break;
+            case SUBTASK:
+                task = new Subtask(title, description, epicId);
+                break;
+            default:
+                task = new Task(title, description);
+                break;
+        }
+        task.setId(id);
+        task.setStatus(status);
+        task.setStartTime(startTime);
+        task.setDuration(duration);
+        return task;
+    }
+
+    /**
+     * История в виде заплатки для patchHistory: сигнатура KBMH, число просмотров и их id.
+     */
+    static byte[] encodeHistory(List<Task> history) {
+        ByteBuffer data = ByteBuffer.allocate(HISTORY_MAGIC.length + Integer.BYTES + history.size() * Integer.BYTES);
+        data.put(HISTORY_MAGIC);
+        data.putInt(history.size());
+        for (Task task : history) {
+            data.putInt(task.getId());
+        }
+        return data.array();
+    }
+
+    static boolean isHistoryPatch(byte[] data) {
+        return Arrays.equals(data, 0, Math.min(data.length, HISTORY_MAGIC.length), HISTORY_MAGIC, 0, HISTORY_MAGIC.length);
+    }
+
+    /**
+     * Переписывает историю прямо в файле: записи и индекс не читаются и не копируются.
+     * Сначала пишутся id, затем их число в заголовке, и только потом файл обрезается, поэтому
+     * при сбое посередине заголовок по-прежнему указывает на целую историю.
+     */
+    static void patchHistory(File file, byte[] patch) throws IOException {
+        ByteBuffer ids = ByteBuffer.wrap(patch, HISTORY_MAGIC.length, patch.length - HISTORY_MAGIC.length).slice();
+        int count = ids.getInt(0);
+        ids.position(Integer.BYTES);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) break;
+            }
+            if (header.hasRemaining() || !isMapped(header.array())) {
+                throw new ManagerSaveException("Файл не является снимком с фиксированной раскладкой");
+            }
+            long historyOffset = header.getLong(24);
+            long position = historyOffset;
+            while (ids.hasRemaining()) {
+                position += channel.write(ids, position);
+            }
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, count), 12);
+            channel.truncate(historyOffset + (long) count * Integer.BYTES);
+        }
+    }
+
+    static byte[] encode(TaskManager manager) {
+        List<Task> all = new ArrayList<>(manager.getAllTasks());
+        all.addAll(manager.getAllEpics());
+        all.addAll(manager.getAllSubtasks());
+        List<Task> history = manager.getHistory();
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + all.size() * 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(new byte[HEADER_SIZE]);
+
+            // Старшие 32 бита - id, младшие - номер записи: сортировка даёт индекс по возрастанию id
+            long[] order = new long[all.size()];
+            long[] offsets = new long[all.size()];
+            for (int i = 0; i < all.size(); i++) {
+                Task task = all.get(i);
+                offsets[i] = out.size();
+                order[i] = ((long) task.getId() << 32) | i;
+                writeRecord(out, task);
+            }
+            Arrays.sort(order);
+
+            long indexOffset = out.size();
+            for (long entry : order) {
+                out.writeInt((int) (entry >>> 32));
+                out.writeLong(offsets[(int) entry]);
+            }
+            long historyOffset = out.size();
+            for (Task task : history) {
+                out.writeInt(task.getId());
+            }
+            out.flush();
+
+            ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+            data.put(0, MAGIC);
+            data.putInt(4, VERSION);
+            data.putInt(8, all.size());
+            data.putInt(12, history.size());
+            data.putLong(16, indexOffset);
+            data.putLong(24, historyOffset);
+            return data.array();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Task task) throws IOException {
+        byte[] title = task.getTitle() != null ? task.getTitle().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] description = task.getDescription() != null ? task.getDescription().getBytes(StandardCharsets.UTF_8) : null;
+        List<Integer> subtaskIds = task instanceof Epic ? ((Epic) task).getSubtaskIds() : List.of();
+        LocalDateTime startTime = task.getStartTime();
+        Duration duration = task.getDuration();
+
+        out.writeInt(task.getId());
+        out.writeByte(BinarySnapshotCodec.typeCode(task.getType()));
+        out.writeByte(BinarySnapshotCodec.statusCode(task.getStatus()));
+        out.writeShort((startTime != null ? HAS_START : 0) | (duration != null ? HAS_DURATION : 0));
+        out.writeInt(task instanceof Subtask ? ((Subtask) task).getEpicId() : 0);
+        out.writeLong(startTime != null ? startTime.toEpochSecond(ZoneOffset.UTC) : 0);
+        out.writeInt(startTime != null ? startTime.getNano() : 0);
+        out.writeLong(duration != null ? duration.toMinutes() : 0);
+        out.writeInt(title != null ? title.length : -1);
+        out.writeInt(description != null ? description.length : -1);
+        out.writeInt(subtaskIds.size());
+        if (title != null) out.write(title);
+        if (description != null) out.write(description);
+        for (int subtaskId : subtaskIds) {
+            out.writeInt(subtaskId);
+        }
+    }
+
+    private String readString(int position, int length) {
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
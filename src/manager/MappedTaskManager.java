@@ -0,0 +1,413 @@
+package manager;
+
+import model.*;
+import util.IntObjectHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * FileBackedTaskManager поверх снимка формата MAPPED. При открытии файл только отображается в память
+ * и читается история, а задачи создаются при первом getTask, getEpic или getSubtask с их id.
+ * Операции над всем хранилищем (списки, приоритеты, любые изменения) один раз создают оставшиеся задачи,
+ * после чего менеджер работает как обычный FileBackedTaskManager.
+ * Пока хранилище не загружено целиком, при сохранении на месте переписывается только история в конце файла.
+ */
+public class MappedTaskManager extends FileBackedTaskManager {
+    private final File file;
+    private final IntObjectHashMap<Task> decoded = new IntObjectHashMap<>();
+    private MappedSnapshotFile snapshot;
+
+    MappedTaskManager(File file, MappedSnapshotFile snapshot) {
+        super(file, SnapshotFormat.MAPPED);
+        this.file = file;
+        this.snapshot = snapshot;
+        restoreHistory();
+    }
+
+    MappedTaskManager(File file, MappedSnapshotFile snapshot, Duration flushInterval, int maxPendingChanges) {
+        super(file, SnapshotFormat.MAPPED, flushInterval, maxPendingChanges);
+        this.file = file;
+        this.snapshot = snapshot;
+        restoreHistory();
+    }
+
+    /**
+     * Все ли задачи уже созданы из файла.
+     */
+    public synchronized boolean isMaterialized() {
+        return snapshot == null;
+    }
+
+    /**
+     * Число задач, созданных из файла по требованию до полной загрузки.
+     */
+    public synchronized int getDecodedCount() {
+        return isMaterialized() ? tasks.size() + epics.size() + subtasks.size() : decoded.size();
+    }
+
+    private void restoreHistory() {
+        for (int id : snapshot.historyIds()) {
+            Task task = lookup(id, null);
+            if (task != null) {
+                historyManager.add(task);
+            }
+        }
+    }
+
+    private Task lookup(int id, TaskType type) {
+        Task task = decoded.get(id);
+        if (task == null) {
+            int offset = snapshot.find(id);
+            if (offset < 0) return null;
+
+            task = snapshot.decode(offset);
+            decoded.put(id, task);
+            if (task instanceof Epic) {
+                List<Subtask> epicSubtasks = new ArrayList<>();
+                for (int subtaskId : ((Epic) task).getSubtaskIds()) {
+                    Task subtask = lookup(subtaskId, TaskType.SUBTASK);
+                    if (subtask != null) epicSubtasks.add((Subtask) subtask);
+                }
+                ((Epic) task).updateTimeParameters(epicSubtasks);
+            }
+        }
+        return type == null || task.getType() == type ? task : null;
+    }
+
+    private void materialize() {
+        if (snapshot == null) return;
+
+        // Поле обнуляется заранее: restore вызывает переопределённые методы менеджера
+        MappedSnapshotFile source = snapshot;
+        snapshot = null;
+        List<Task> parsed = new ArrayList<>(source.size());
+        for (int i = 0; i < source.size(); i++) {
+            Task task = decoded.get(source.idAt(i));
+            if (task == null) {
+                task = source.decode(source.offsetAt(i));
+            } else if (task instanceof Epic) {
+                // Время эпика пересчитается при привязке подзадач. Очищается копия: уже созданный эпик
+                // мог уйти наружу
+                task = ((Epic) task).copy();
+                ((Epic) task).clearSubtasks();
+            }
+            parsed.add(task);
+        }
+        // История уже восстановлена из тех же объектов
+        FileBackedTaskManager.restore(this, parsed, new int[0]);
+        decoded.clear();
+    }
+
+    // Пока задачи не загружены, меняться может только история: сохраняется только она
+    @Override
+    protected byte[] encodeSnapshot() {
+        return snapshot != null ? MappedSnapshotFile.encodeHistory(getHistory()) : super.encodeSnapshot();
+    }
+
+    @Override
+    protected void writeSnapshot(byte[] data) throws IOException {
+        if (MappedSnapshotFile.isHistoryPatch(data)) {
+            MappedSnapshotFile.patchHistory(file, data);
+            return;
+        }
+        // Файл подменяется целиком: старое отображение продолжает читать прежнее содержимое
+        Path tmp = new File(file.getPath() + ".tmp").toPath();
+        Files.write(tmp, data);
+        Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized Task getTask(int id) {
+        if (isMaterialized()) return super.getTask(id);
+
+        Task task = lookup(id, TaskType.TASK);
+        if (task != null) {
+            historyManager.add(task);
+            markChanged(TaskCollection.HISTORY);
+            publishSnapshot();
+        }
+        save();
+        return task;
+    }
+
+    @Override
+    public synchronized Epic getEpic(int id) {
+        if (isMaterialized()) return super.getEpic(id);
+
+        Epic epic = (Epic) lookup(id, TaskType.EPIC);
+        if (epic != null) {
+            historyManager.add(epic);
+            markChanged(TaskCollection.HISTORY);
+            publishSnapshot();
+        }
+        save();
+        return epic;
+    }
+
+    @Override
+    public synchronized Subtask getSubtask(int id) {
+        if (isMaterialized()) return super.getSubtask(id);
+
+        Subtask subtask = (Subtask) lookup(id, TaskType.SUBTASK);
+        if (subtask != null) {
+            historyManager.add(subtask);
+            markChanged(TaskCollection.HISTORY);
+            publishSnapshot();
+        }
+        save();
+        return subtask;
+    }
+
+    @Override
+    public synchronized Task peekTask(int id) {
+        return isMaterialized() ? super.peekTask(id) : lookup(id, TaskType.TASK);
+    }
+
+    @Override
+    public synchronized Epic peekEpic(int id) {
+        return isMaterialized() ? super.peekEpic(id) : (Epic) lookup(id, TaskType.EPIC);
+    }
+
+    @Override
+    public synchronized Subtask peekSubtask(int id) {
+        return isMaterialized() ? super.peekSubtask(id) : (Subtask) lookup(id, TaskType.SUBTASK);
+    }
+
+    @Override
+    public synchronized boolean exists(int id) {
+        return isMaterialized() ? super.exists(id) : lookup(id, null) != null;
+    }
+
+    @Override
+    public synchronized LocalDateTime getTaskEndTime(int id) {
+        if (isMaterialized()) return super.getTaskEndTime(id);
+
+        Task task = lookup(id, null);
+        return task != null ? task.getEndTime() : null;
+    }
+
+    // До загрузки коллекции снимка пусты, и история отдаётся с созданными по требованию задачами
+    @Override
+    public synchronized List<Task> getHistory() {
+        return isMaterialized() ? super.getHistory() : historyManager.getHistory();
+    }
+
+    @Override
+    public synchronized Task createTask(Task task) {
+        materialize();
+        return super.createTask(task);
+    }
+
+    @Override
+    public synchronized Epic createEpic(Epic epic) {
+        materialize();
+        return super.createEpic(epic);
+    }
+
+    @Override
+    public synchronized Subtask createSubtask(Subtask subtask) {
+        materialize();
+        return super.createSubtask(subtask);
+    }
+
+    @Override
+    public synchronized List<Task> getAllTasks() {
+        materialize();
+        return super.getAllTasks();
+    }
+
+    @Override
+    public synchronized List<Subtask> getAllSubtasks() {
+        materialize();
+        return super.getAllSubtasks();
+    }
+
+    @Override
+    public synchronized List<Epic> getAllEpics() {
+        materialize();
+        return super.getAllEpics();
+    }
+
+    @Override
+    public synchronized List<Task> getTasksByStatus(TaskStatus status) {
+        materialize();
+        return super.getTasksByStatus(status);
+    }
+
+    @Override
+    public synchronized List<Epic> getEpicsByStatus(TaskStatus status) {
+        materialize();
+        return super.getEpicsByStatus(status);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        materialize();
+        return super.getSubtasksByStatus(status);
+    }
+
+    @Override
+    public synchronized TaskSnapshot snapshot() {
+        materialize();
+        return super.snapshot();
+    }
+
+    // Версии ведутся и до полной загрузки, поэтому загружать задачи из файла не нужно
+    @Override
+    public synchronized long getVersion(TaskCollection collection) {
+        return super.getVersion(collection);
+    }
+
+    @Override
+    public synchronized List<Task> getTasksAfter(int afterId, int limit) {
+        materialize();
+        return super.getTasksAfter(afterId, limit);
+    }
+
+    @Override
+    public synchronized List<Epic> getEpicsAfter(int afterId, int limit) {
+        materialize();
+        return super.getEpicsAfter(afterId, limit);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksAfter(int afterId, int limit) {
+        materialize();
+        return super.getSubtasksAfter(afterId, limit);
+    }
+
+    @Override
+    public synchronized void forEachConflict(BiConsumer<Task, Task> action) {
+        materialize();
+        super.forEachConflict(action);
+    }
+
+    @Override
+    public synchronized List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        materialize();
+        return super.applyBatch(operations);
+    }
+
+    @Override
+    public synchronized List<Task> search(String query) {
+        materialize();
+        return super.search(query);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksByEpic(int epicId) {
+        materialize();
+        return super.getSubtasksByEpic(epicId);
+    }
+
+    @Override
+    public synchronized boolean updateTask(Task task) {
+        materialize();
+        return super.updateTask(task);
+    }
+
+    @Override
+    public synchronized boolean updateEpic(Epic epic) {
+        materialize();
+        return super.updateEpic(epic);
+    }
+
+    @Override
+    public synchronized boolean updateSubtask(Subtask subtask) {
+        materialize();
+        return super.updateSubtask(subtask);
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        materialize();
+        super.deleteAllTasks();
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        materialize();
+        super.deleteAllSubtasks();
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        materialize();
+        super.deleteAllEpics();
+    }
+
+    @Override
+    public synchronized boolean deleteTask(int id) {
+        materialize();
+        return super.deleteTask(id);
+    }
+
+    @Override
+    public synchronized boolean deleteEpic(int id) {
+        materialize();
+        return super.deleteEpic(id);
+    }
+
+    @Override
+    public synchronized boolean deleteSubtask(int id) {
+        materialize();
+        return super.deleteSubtask(id);
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        materialize();
+        return super.getPrioritizedTasks();
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        materialize();
+        return super.getPrioritizedTasks(from, to, limit);
+    }
+
+    @Override
+    public synchronized boolean isTaskOverlapping(Task task) {
+        materialize();
+        return super.isTaskOverlapping(task);
+    }
+
+    @Override
+    public synchronized LocalDateTime findFreeSlot(LocalDateTime notBefore, Duration duration) {
+        materialize();
+        return super.findFreeSlot(notBefore, duration);
+    }
+
+    @Override
+    public synchronized List<Task> autoSchedule(List<Integer> taskIds, LocalDateTime notBefore) {
+        materialize();
+        return super.autoSchedule(taskIds, notBefore);
+    }
+
+    @Override
+    public synchronized void updateEpicTime(int epicId) {
+        materialize();
+        super.updateEpicTime(epicId);
+    }
+
+    @Override
+    public synchronized void updateEpicStatus(int epicId) {
+        materialize();
+        super.updateEpicStatus(epicId);
+    }
+
+    @Override
+    public synchronized boolean isEpicStatusConsistent(int epicId) {
+        materialize();
+        return super.isEpicStatusConsistent(epicId);
+    }
+}
@@ -0,0 +1,13 @@
+package manager;
+
+/**
+ * Формат файла, в который FileBackedTaskManager сохраняет состояние.
+ */
+public enum SnapshotFormat {
+    CSV,
+    BINARY,
+    /**
+     * Фиксированная раскладка с индексом по id: файл отображается в память, задачи создаются по требованию.
+     */
+    MAPPED
+}
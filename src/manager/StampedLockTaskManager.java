@@ -0,0 +1,314 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасная обёртка на StampedLock. Изменения и просмотры с записью в историю берут блокировку записи.
+ * Если исходный менеджер — InMemoryTaskManager, списки задач, страницы, приоритеты и история берутся
+ * из его последнего опубликованного снимка вовсе без блокировки: снимок неизменяем, а задачи в нём
+ * при изменениях заменяются копиями. Остальные чтения сначала выполняются оптимистично: копии снимаются
+ * без блокировки и отдаются, если за это время не было записи, иначе чтение повторяется под блокировкой
+ * чтения (её держат одновременно сколько угодно читателей). Чтения по деревьям (поиск, свободные окна)
+ * сразу берут блокировку чтения.
+ * <p>
+ * Наружу всегда отдаются копии, чтобы изменения объектов вызывающим кодом не попадали в менеджер.
+ * Оптимистичное чтение подходит, если методы чтения исходного менеджера не зацикливаются на состоянии,
+ * которое меняется параллельно: в InMemoryTaskManager это массивы с открытой адресацией и списки,
+ * ссылки в которых ведут только к более новым узлам.
+ */
+public class StampedLockTaskManager implements TaskManager, AutoCloseable {
+    private final TaskManager delegate;
+    // Источник опубликованных снимков или null, если исходный менеджер их не ведёт
+    private final InMemoryTaskManager published;
+    private final StampedLock lock = new StampedLock();
+
+    public StampedLockTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        this.published = delegate instanceof InMemoryTaskManager inMemory ? inMemory : null;
+    }
+
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    private <T> T optimisticRead(Supplier<T> read) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = read.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                // Несогласованное состояние из-за параллельной записи; настоящая ошибка повторится под блокировкой
+            }
+        }
+        return read(read);
+    }
+
+    private <T> T read(Supplier<T> read) {
+        long stamp = lock.readLock();
+        try {
+            return read.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T write(Supplier<T> write) {
+        long stamp = lock.writeLock();
+        try {
+            return write.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void write(Runnable write) {
+        long stamp = lock.writeLock();
+        try {
+            write.run();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return write(() -> TaskCopies.of(delegate.createTask(task)));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return write(() -> TaskCopies.of(delegate.createEpic(epic)));
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        return write(() -> TaskCopies.of(delegate.createSubtask(subtask)));
+    }
+
+    // Просмотр дописывает историю, поэтому это запись
+    @Override
+    public Task getTask(int id) {
+        return write(() -> TaskCopies.of(delegate.getTask(id)));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return write(() -> TaskCopies.of(delegate.getEpic(id)));
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return write(() -> TaskCopies.of(delegate.getSubtask(id)));
+    }
+
+    @Override
+    public Task peekTask(int id) {
+        return optimisticRead(() -> TaskCopies.of(delegate.peekTask(id)));
+    }
+
+    @Override
+    public Epic peekEpic(int id) {
+        return optimisticRead(() -> TaskCopies.of(delegate.peekEpic(id)));
+    }
+
+    @Override
+    public Subtask peekSubtask(int id) {
+        return optimisticRead(() -> TaskCopies.of(delegate.peekSubtask(id)));
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return optimisticRead(() -> delegate.exists(id));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        if (published != null) return TaskCopies.of(published.snapshot().getTasks());
+        return optimisticRead(() -> TaskCopies.of(delegate.getAllTasks()));
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        if (published != null) return TaskCopies.of(published.snapshot().getSubtasks());
+        return optimisticRead(() -> TaskCopies.of(delegate.getAllSubtasks()));
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        if (published != null) return TaskCopies.of(published.snapshot().getEpics());
+        return optimisticRead(() -> TaskCopies.of(delegate.getAllEpics()));
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        return optimisticRead(() -> TaskCopies.of(delegate.getTasksByStatus(status)));
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        return optimisticRead(() -> TaskCopies.of(delegate.getEpicsByStatus(status)));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return optimisticRead(() -> TaskCopies.of(delegate.getSubtasksByStatus(status)));
+    }
+
+    @Override
+    public long getVersion(TaskCollection collection) {
+        return optimisticRead(() -> delegate.getVersion(collection));
+    }
+
+    @Override
+    public List<Task> getTasksAfter(int afterId, int limit) {
+        if (published != null) {
+            return TaskCopies.of(published.snapshot().getTasksAfter(afterId, InMemoryTaskManager.checkLimit(limit)));
+        }
+        return optimisticRead(() -> TaskCopies.of(delegate.getTasksAfter(afterId, limit)));
+    }
+
+    @Override
+    public List<Epic> getEpicsAfter(int afterId, int limit) {
+        if (published != null) {
+            return TaskCopies.of(published.snapshot().getEpicsAfter(afterId, InMemoryTaskManager.checkLimit(limit)));
+        }
+        return optimisticRead(() -> TaskCopies.of(delegate.getEpicsAfter(afterId, limit)));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksAfter(int afterId, int limit) {
+        if (published != null) {
+            return TaskCopies.of(published.snapshot().getSubtasksAfter(afterId, InMemoryTaskManager.checkLimit(limit)));
+        }
+        return optimisticRead(() -> TaskCopies.of(delegate.getSubtasksAfter(afterId, limit)));
+    }
+
+    // Снимаются только копии задач со временем; action вызывается уже без блокировки,
+    // поэтому медленный потребитель пар не задерживает запись
+    @Override
+    public void forEachConflict(BiConsumer<Task, Task> action) {
+        InMemoryTaskManager.forEachConflict(optimisticRead(() -> TaskCopies.scheduled(delegate)), action);
+    }
+
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        return write(() -> TaskCopies.ofResults(delegate.applyBatch(operations)));
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        return read(() -> TaskCopies.of(delegate.search(query)));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByEpic(int epicId) {
+        return optimisticRead(() -> TaskCopies.of(delegate.getSubtasksByEpic(epicId)));
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        return write(() -> delegate.updateTask(task));
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic) {
+        return write(() -> delegate.updateEpic(epic));
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask) {
+        return write(() -> delegate.updateSubtask(subtask));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(delegate::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(delegate::deleteAllSubtasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(delegate::deleteAllEpics);
+    }
+
+    @Override
+    public boolean deleteTask(int id) {
+        return write(() -> delegate.deleteTask(id));
+    }
+
+    @Override
+    public boolean deleteEpic(int id) {
+        return write(() -> delegate.deleteEpic(id));
+    }
+
+    @Override
+    public boolean deleteSubtask(int id) {
+        return write(() -> delegate.deleteSubtask(id));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        if (published != null) return TaskCopies.of(published.snapshot().getHistory());
+        return optimisticRead(() -> TaskCopies.of(delegate.getHistory()));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        if (published != null) return TaskCopies.of(published.snapshot().getPrioritizedTasks());
+        return read(() -> TaskCopies.of(delegate.getPrioritizedTasks()));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        return read(() -> TaskCopies.of(delegate.getPrioritizedTasks(from, to, limit)));
+    }
+
+    @Override
+    public boolean isTaskOverlapping(Task task) {
+        return read(() -> delegate.isTaskOverlapping(task));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(LocalDateTime notBefore, Duration duration) {
+        return read(() -> delegate.findFreeSlot(notBefore, duration));
+    }
+
+    @Override
+    public List<Task> autoSchedule(List<Integer> taskIds, LocalDateTime notBefore) {
+        return write(() -> TaskCopies.of(delegate.autoSchedule(taskIds, notBefore)));
+    }
+
+    @Override
+    public void updateEpicTime(int epicId) {
+        write(() -> delegate.updateEpicTime(epicId));
+    }
+
+    @Override
+    public void updateEpicStatus(int epicId) {
+        write(() -> delegate.updateEpicStatus(epicId));
+    }
+
+    @Override
+    public LocalDateTime getTaskEndTime(int id) {
+        return optimisticRead(() -> delegate.getTaskEndTime(id));
+    }
+
+    @Override
+    public void close() {
+        Managers.close(delegate);
+    }
+}
@@ -0,0 +1,247 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Потокобезопасная обёртка: все вызовы к исходному менеджеру выполняются под одним монитором.
+ * Задачи возвращаются копиями, снятыми под монитором: исходные объекты менеджер меняет на месте.
+ */
+public class SynchronizedTaskManager implements TaskManager, AutoCloseable {
+    private final TaskManager delegate;
+
+    public SynchronizedTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+    }
+
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public synchronized Task createTask(Task task) {
+        return TaskCopies.of(delegate.createTask(task));
+    }
+
+    @Override
+    public synchronized Epic createEpic(Epic epic) {
+        return TaskCopies.of(delegate.createEpic(epic));
+    }
+
+    @Override
+    public synchronized Subtask createSubtask(Subtask subtask) {
+        return TaskCopies.of(delegate.createSubtask(subtask));
+    }
+
+    @Override
+    public synchronized Task getTask(int id) {
+        return TaskCopies.of(delegate.getTask(id));
+    }
+
+    @Override
+    public synchronized Epic getEpic(int id) {
+        return TaskCopies.of(delegate.getEpic(id));
+    }
+
+    @Override
+    public synchronized Subtask getSubtask(int id) {
+        return TaskCopies.of(delegate.getSubtask(id));
+    }
+
+    @Override
+    public synchronized Task peekTask(int id) {
+        return TaskCopies.of(delegate.peekTask(id));
+    }
+
+    @Override
+    public synchronized Epic peekEpic(int id) {
+        return TaskCopies.of(delegate.peekEpic(id));
+    }
+
+    @Override
+    public synchronized Subtask peekSubtask(int id) {
+        return TaskCopies.of(delegate.peekSubtask(id));
+    }
+
+    @Override
+    public synchronized boolean exists(int id) {
+        return delegate.exists(id);
+    }
+
+    @Override
+    public synchronized List<Task> getAllTasks() {
+        return TaskCopies.of(delegate.getAllTasks());
+    }
+
+    @Override
+    public synchronized List<Subtask> getAllSubtasks() {
+        return TaskCopies.of(delegate.getAllSubtasks());
+    }
+
+    @Override
+    public synchronized List<Epic> getAllEpics() {
+        return TaskCopies.of(delegate.getAllEpics());
+    }
+
+    @Override
+    public synchronized List<Task> getTasksByStatus(TaskStatus status) {
+        return TaskCopies.of(delegate.getTasksByStatus(status));
+    }
+
+    @Override
+    public synchronized List<Epic> getEpicsByStatus(TaskStatus status) {
+        return TaskCopies.of(delegate.getEpicsByStatus(status));
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        return TaskCopies.of(delegate.getSubtasksByStatus(status));
+    }
+
+    @Override
+    public synchronized long getVersion(TaskCollection collection) {
+        return delegate.getVersion(collection);
+    }
+
+    @Override
+    public synchronized List<Task> getTasksAfter(int afterId, int limit) {
+        return TaskCopies.of(delegate.getTasksAfter(afterId, limit));
+    }
+
+    @Override
+    public synchronized List<Epic> getEpicsAfter(int afterId, int limit) {
+        return TaskCopies.of(delegate.getEpicsAfter(afterId, limit));
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksAfter(int afterId, int limit) {
+        return TaskCopies.of(delegate.getSubtasksAfter(afterId, limit));
+    }
+
+    // Под монитором снимаются только копии задач со временем; пары ищутся и передаются action уже
+    // без блокировки, поэтому медленный потребитель не задерживает остальные операции
+    @Override
+    public void forEachConflict(BiConsumer<Task, Task> action) {
+        List<Task> scheduled;
+        synchronized (this) {
+            scheduled = TaskCopies.scheduled(delegate);
+        }
+        InMemoryTaskManager.forEachConflict(scheduled, action);
+    }
+
+    @Override
+    public synchronized List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        return TaskCopies.ofResults(delegate.applyBatch(operations));
+    }
+
+    @Override
+    public synchronized List<Task> search(String query) {
+        return TaskCopies.of(delegate.search(query));
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksByEpic(int epicId) {
+        return TaskCopies.of(delegate.getSubtasksByEpic(epicId));
+    }
+
+    @Override
+    public synchronized boolean updateTask(Task task) {
+        return delegate.updateTask(task);
+    }
+
+    @Override
+    public synchronized boolean updateEpic(Epic epic) {
+        return delegate.updateEpic(epic);
+    }
+
+    @Override
+    public synchronized boolean updateSubtask(Subtask subtask) {
+        return delegate.updateSubtask(subtask);
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        delegate.deleteAllTasks();
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        delegate.deleteAllSubtasks();
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        delegate.deleteAllEpics();
+    }
+
+    @Override
+    public synchronized boolean deleteTask(int id) {
+        return delegate.deleteTask(id);
+    }
+
+    @Override
+    public synchronized boolean deleteEpic(int id) {
+        return delegate.deleteEpic(id);
+    }
+
+    @Override
+    public synchronized boolean deleteSubtask(int id) {
+        return delegate.deleteSubtask(id);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return TaskCopies.of(delegate.getHistory());
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        return TaskCopies.of(delegate.getPrioritizedTasks());
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit) {
+        return TaskCopies.of(delegate.getPrioritizedTasks(from, to, limit));
+    }
+
+    @Override
+    public synchronized boolean isTaskOverlapping(Task task) {
+        return delegate.isTaskOverlapping(task);
+    }
+
+    @Override
+    public synchronized LocalDateTime findFreeSlot(LocalDateTime notBefore, Duration duration) {
+        return delegate.findFreeSlot(notBefore, duration);
+    }
+
+    @Override
+    public synchronized List<Task> autoSchedule(List<Integer> taskIds, LocalDateTime notBefore) {
+        return TaskCopies.of(delegate.autoSchedule(taskIds, notBefore));
+    }
+
+    @Override
+    public synchronized void updateEpicTime(int epicId) {
+        delegate.updateEpicTime(epicId);
+    }
+
+    @Override
+    public synchronized void updateEpicStatus(int epicId) {
+        delegate.updateEpicStatus(epicId);
+    }
+
+    @Override
+    public synchronized LocalDateTime getTaskEndTime(int id) {
+        return delegate.getTaskEndTime(id);
+    }
+
+    @Override
+    public void close() {
+        Managers.close(delegate);
+    }
+}
@@ -0,0 +1,12 @@
+package manager;
+
+/**
+ * Коллекции, для которых менеджер ведёт счётчик версий.
+ */
+public enum TaskCollection {
+    TASKS,
+    EPICS,
+    SUBTASKS,
+    PRIORITIZED,
+    HISTORY
+}
@@ -0,0 +1,47 @@
+package manager;
+
+import model.Task;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Копии задач для выдачи из потокобезопасных обёрток. Менеджер отдаёт свои объекты, поэтому наружу
+ * отдаются копии: их можно менять и читать без блокировки, не затрагивая состояние менеджера.
+ */
+final class TaskCopies {
+    private TaskCopies() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Task> T of(T task) {
+        return task != null ? (T) task.copy() : null;
+    }
+
+    static <T extends Task> List<T> of(List<T> tasks) {
+        List<T> copies = new ArrayList<>(tasks.size());
+        for (T task : tasks) {
+            copies.add(of(task));
+        }
+        return copies;
+    }
+
+    // Копии задач и подзадач со временем начала: всё, что нужно для поиска пересечений
+    static List<Task> scheduled(TaskManager manager) {
+        List<Task> copies = new ArrayList<>();
+        for (Task task : manager.getAllTasks()) {
+            if (task.getStartTime() != null) copies.add(task.copy());
+        }
+        for (Task subtask : manager.getAllSubtasks()) {
+            if (subtask.getStartTime() != null) copies.add(subtask.copy());
+        }
+        return copies;
+    }
+
+    static List<BatchResult> ofResults(List<BatchResult> results) {
+        List<BatchResult> copies = new ArrayList<>(results.size());
+        for (BatchResult result : results) {
+            copies.add(result.copy());
+        }
+        return copies;
+    }
+}
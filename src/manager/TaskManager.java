@@ -3,8 +3,11 @@ package manager;
 import model.Epic;
 import model.Subtask;
 import model.Task;
+import model.TaskStatus;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public interface TaskManager {
     Task createTask(Task task);
@@ -19,6 +22,19 @@ public interface TaskManager {
 
     Subtask getSubtask(int id);
 
+    /**
+     * Чтение без записи в историю и без сохранения, для служебных проверок.
+     */
+    Task peekTask(int id);
+
+    Epic peekEpic(int id);
+
+    Subtask peekSubtask(int id);
+
+    default boolean exists(int id) {
+        return peekTask(id) != null || peekEpic(id) != null || peekSubtask(id) != null;
+    }
+
 
     List<Task> getAllTasks();
 
@@ -28,6 +44,39 @@ public interface TaskManager {
 
     List<Subtask> getSubtasksByEpic(int epicId);
 
+    List<Task> getTasksByStatus(TaskStatus status);
+
+    List<Epic> getEpicsByStatus(TaskStatus status);
+
+    List<Subtask> getSubtasksByStatus(TaskStatus status);
+
+    /**
+     * Страница хранилища по возрастанию id: до limit записей с id больше afterId.
+     * Следующая страница запрашивается с id последней записи.
+     */
+    List<Task> getTasksAfter(int afterId, int limit);
+
+    List<Epic> getEpicsAfter(int afterId, int limit);
+
+    List<Subtask> getSubtasksAfter(int afterId, int limit);
+
+    /**
+     * Счётчик изменений коллекции: пока он тот же, выдача коллекции не менялась.
+     */
+    long getVersion(TaskCollection collection);
+
+    /**
+     * Применяет операции по порядку и возвращает итог каждой в том же порядке.
+     * Сохранение, если оно есть, выполняется один раз на весь пакет.
+     */
+    List<BatchResult> applyBatch(List<BatchOperation> operations);
+
+    /**
+     * Задачи всех видов, в названии или описании которых есть слова запроса, по возрастанию id.
+     * Слова через пробел должны встретиться все, группы разделяются словом OR, "слово*" ищется как префикс.
+     */
+    List<Task> search(String query);
+
     default boolean updateTask(Task task) {
         return false;
     }
@@ -53,8 +102,40 @@ public interface TaskManager {
 
     List<Task> getPrioritizedTasks();
 
+    /**
+     * Задачи, начинающиеся в полуинтервале [from, to), по времени начала; null - граница не задана.
+     */
+    default List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return getPrioritizedTasks(from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Не более limit первых задач окна. Следующую страницу можно запросить с from,
+     * равным времени начала первой задачи, не вошедшей в ответ.
+     */
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to, int limit);
+
     boolean isTaskOverlapping(Task task);
 
+    /**
+     * Передаёт action каждую пару пересекающихся задач и подзадач; первой идёт та, что начинается раньше.
+     * Проход заметающей прямой по времени начала занимает O(n log n + k), где k - число пар.
+     */
+    void forEachConflict(BiConsumer<Task, Task> action);
+
+    /**
+     * Самое раннее время начала не раньше notBefore, при котором задача длительностью duration
+     * ни с чем не пересекается.
+     */
+    LocalDateTime findFreeSlot(LocalDateTime notBefore, Duration duration);
+
+    /**
+     * Расставляет задачи и подзадачи без времени начала по свободным окнам, начиная с notBefore,
+     * в порядке списка. Уже запланированные задачи и эпики пропускаются.
+     * Возвращает запланированные задачи.
+     */
+    List<Task> autoSchedule(List<Integer> taskIds, LocalDateTime notBefore);
+
     void updateEpicTime(int epicId);
 
     void updateEpicStatus(int epicId);
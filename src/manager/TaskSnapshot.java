@@ -0,0 +1,164 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import util.PersistentSortedSet;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Согласованный срез трёх хранилищ, списка приоритетов и истории на момент публикации. Срез не меняется:
+ * менеджер не трогает опубликованные задачи, а заменяет их копиями.
+ * Общая версия растёт при каждой публикации, которая что-то изменила, версии коллекций -
+ * когда изменилось то, что попадает в их выдачу.
+ */
+public class TaskSnapshot {
+    private final long version;
+    private final long[] versions;
+    private final PersistentSortedSet<Task> tasks;
+    private final PersistentSortedSet<Epic> epics;
+    private final PersistentSortedSet<Subtask> subtasks;
+    private final PersistentSortedSet<Task> prioritized;
+    // Неизменяемый список истории от HistoryManager; задачи в нём берутся по id из этого же среза
+    private final List<Task> history;
+
+    TaskSnapshot(long version, long[] versions, PersistentSortedSet<Task> tasks, PersistentSortedSet<Epic> epics,
+                 PersistentSortedSet<Subtask> subtasks, PersistentSortedSet<Task> prioritized, List<Task> history) {
+        this.version = version;
+        this.versions = versions;
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.prioritized = prioritized;
+        this.history = history;
+    }
+
+    boolean sameContent(PersistentSortedSet<Task> tasks, PersistentSortedSet<Epic> epics,
+                        PersistentSortedSet<Subtask> subtasks, PersistentSortedSet<Task> prioritized) {
+        return this.tasks == tasks && this.epics == epics && this.subtasks == subtasks
+                && this.prioritized == prioritized;
+    }
+
+    /**
+     * Следующий снимок. changedInPlace - коллекции, изменения которых не видны по множествам.
+     * История показывает задачи из коллекций, поэтому её версия растёт при любом изменении.
+     */
+    TaskSnapshot next(PersistentSortedSet<Task> tasks, PersistentSortedSet<Epic> epics,
+                      PersistentSortedSet<Subtask> subtasks, PersistentSortedSet<Task> prioritized,
+                      List<Task> history, Set<TaskCollection> changedInPlace) {
+        boolean tasksChanged = tasks != this.tasks || changedInPlace.contains(TaskCollection.TASKS);
+        boolean subtasksChanged = subtasks != this.subtasks || changedInPlace.contains(TaskCollection.SUBTASKS);
+        long[] next = versions.clone();
+        if (tasksChanged) next[TaskCollection.TASKS.ordinal()]++;
+        if (epics != this.epics || changedInPlace.contains(TaskCollection.EPICS)) next[TaskCollection.EPICS.ordinal()]++;
+        if (subtasksChanged) next[TaskCollection.SUBTASKS.ordinal()]++;
+        if (prioritized != this.prioritized || tasksChanged || subtasksChanged) {
+            next[TaskCollection.PRIORITIZED.ordinal()]++;
+        }
+        next[TaskCollection.HISTORY.ordinal()]++;
+        return new TaskSnapshot(version + 1, next, tasks, epics, subtasks, prioritized, history);
+    }
+
+    // Сами множества нужны для сравнения версий снимка по общим узлам
+    PersistentSortedSet<Task> taskSet() {
+        return tasks;
+    }
+
+    PersistentSortedSet<Epic> epicSet() {
+        return epics;
+    }
+
+    PersistentSortedSet<Subtask> subtaskSet() {
+        return subtasks;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getVersion(TaskCollection collection) {
+        return versions[collection.ordinal()];
+    }
+
+    // Списки неизменяемые и по возрастанию id
+    public List<Task> getTasks() {
+        return tasks.asList();
+    }
+
+    public List<Epic> getEpics() {
+        return epics.asList();
+    }
+
+    public List<Subtask> getSubtasks() {
+        return subtasks.asList();
+    }
+
+    public List<Task> getPrioritizedTasks() {
+        return prioritized.asList();
+    }
+
+    /**
+     * История в порядке просмотров. Задача берётся по id из коллекций среза, поэтому это та же версия,
+     * что в getTasks, getEpics и getSubtasks; get(i) стоит O(log n).
+     */
+    public List<Task> getHistory() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                return resolve(history.get(index));
+            }
+
+            @Override
+            public int size() {
+                return history.size();
+            }
+
+            @Override
+            public Iterator<Task> iterator() {
+                Iterator<Task> viewed = history.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return viewed.hasNext();
+                    }
+
+                    @Override
+                    public Task next() {
+                        return resolve(viewed.next());
+                    }
+                };
+            }
+        };
+    }
+
+    // Задача, которой нет в срезе, остаётся в том виде, в каком её передали истории
+    private Task resolve(Task viewed) {
+        int id = viewed.getId();
+        Task task = tasks.get(withId(new Task("", ""), id));
+        if (task == null) task = subtasks.get(withId(new Subtask("", "", Integer.MAX_VALUE), id));
+        if (task == null) task = epics.get(withId(new Epic("", ""), id));
+        return task != null ? task : viewed;
+    }
+
+    // Страница по id: до limit записей с id больше afterId. Образец для поиска сравнивается только по id
+    public List<Task> getTasksAfter(int afterId, int limit) {
+        return tasks.higher(withId(new Task("", ""), afterId), limit);
+    }
+
+    public List<Epic> getEpicsAfter(int afterId, int limit) {
+        return epics.higher(withId(new Epic("", ""), afterId), limit);
+    }
+
+    public List<Subtask> getSubtasksAfter(int afterId, int limit) {
+        return subtasks.higher(withId(new Subtask("", "", Integer.MAX_VALUE), afterId), limit);
+    }
+
+    // Id задач начинаются с 1, поэтому образец без id (0) стоит перед всеми
+    private static <T extends Task> T withId(T probe, int id) {
+        if (id > 0) probe.setId(id);
+        return probe;
+    }
+}
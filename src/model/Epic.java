@@ -1,13 +1,34 @@
 package model;
 
+import util.PersistentSortedSet;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
+/**
+ * Эпик держит id подзадач и мультимножества их времени в неизменяемых деревьях, общих с копиями эпика:
+ * копия стоит O(1), изменение заменяет дерево новым за O(log n). Поэтому менеджер может заменить
+ * эпик копией перед изменением, не трогая объект, который уже видят читатели.
+ */
 public class Epic extends Task {
-    private final List<Integer> subtaskIds = new ArrayList<>();
+    private static final Comparator<TimeCount> BY_TIME = Comparator.comparing(count -> count.time);
+
+    // Gson пишет subtaskIds как массив и читает в обычное множество; дерево тогда строится при первом изменении
+    private transient PersistentSortedSet<Integer> subtaskIdTree = PersistentSortedSet.empty(Comparator.naturalOrder());
+    private Set<Integer> subtaskIds = subtaskIdTree.asSet();
+    private LocalDateTime endTime;
+    // Упорядоченные мультимножества начала и окончания подзадач (время и количество) и сумма их длительностей
+    private transient PersistentSortedSet<TimeCount> subtaskStarts;
+    private transient PersistentSortedSet<TimeCount> subtaskEnds;
+    private transient Duration subtaskDurationSum;
+    // Счётчики подзадач по статусам, статус эпика вычисляется по ним за O(1)
+    private transient int newSubtasks;
+    private transient int inProgressSubtasks;
+    private transient int doneSubtasks;
 
     public Epic(String title, String description) {
         super(title, description);
@@ -22,59 +43,185 @@ public class Epic extends Task {
         super(id, title, description, status);
     }
 
+    // Деревья не меняются на месте, поэтому копия делит их с исходным эпиком
+    public Epic(Epic other) {
+        super(other);
+        this.subtaskIdTree = other.subtaskIdTree;
+        this.subtaskIds = other.subtaskIds;
+        this.endTime = other.endTime;
+        this.subtaskStarts = other.subtaskStarts;
+        this.subtaskEnds = other.subtaskEnds;
+        this.subtaskDurationSum = other.subtaskDurationSum;
+        this.newSubtasks = other.newSubtasks;
+        this.inProgressSubtasks = other.inProgressSubtasks;
+        this.doneSubtasks = other.doneSubtasks;
+    }
+
+    @Override
+    public Epic copy() {
+        return new Epic(this);
+    }
+
+    // По возрастанию id. У эпика, созданного Gson без конструктора, множества может не быть
     public List<Integer> getSubtaskIds() {
-        return new ArrayList<>(subtaskIds);
+        return subtaskIds != null ? new ArrayList<>(subtaskIds) : new ArrayList<>();
     }
 
     public void addSubtask(int subtaskId) {
-        if (!subtaskIds.contains(subtaskId)) {
-            subtaskIds.add(subtaskId);
-        }
+        setSubtaskIds(subtaskIdTree().plus(subtaskId));
     }
 
     public void removeSubtask(int subtaskId) {
-        subtaskIds.remove(Integer.valueOf(subtaskId));
+        setSubtaskIds(subtaskIdTree().minus(subtaskId));
     }
 
     public void clearSubtasks() {
-        subtaskIds.clear();
-        this.setStartTime(null);
-        this.setDuration(Duration.ZERO);
+        setSubtaskIds(subtaskIdTree().cleared());
+        resetSubtaskStatusCounts();
+        clearSubtaskTimes();
     }
 
-    public void updateTimeParameters(List<Subtask> subtasks) {
-        if (subtasks == null || subtasks.isEmpty()) {
+    private PersistentSortedSet<Integer> subtaskIdTree() {
+        if (subtaskIdTree == null) {
+            PersistentSortedSet<Integer> tree = PersistentSortedSet.empty(Comparator.naturalOrder());
+            if (subtaskIds != null) {
+                for (Integer subtaskId : subtaskIds) {
+                    tree = tree.plus(subtaskId);
+                }
+            }
+            setSubtaskIds(tree);
+        }
+        return subtaskIdTree;
+    }
+
+    private void setSubtaskIds(PersistentSortedSet<Integer> tree) {
+        subtaskIdTree = tree;
+        subtaskIds = tree.asSet();
+    }
+
+    @Override
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void addSubtaskTime(LocalDateTime startTime, Duration duration) {
+        if (startTime == null) return;
+
+        Duration safeDuration = duration != null ? duration : Duration.ZERO;
+        subtaskStarts = increment(subtaskStarts(), startTime);
+        subtaskEnds = increment(subtaskEnds(), startTime.plus(safeDuration));
+        subtaskDurationSum = getSubtaskDurationSum().plus(safeDuration);
+        refreshTimeParameters();
+    }
+
+    public void removeSubtaskTime(LocalDateTime startTime, Duration duration) {
+        if (startTime == null) return;
+
+        Duration safeDuration = duration != null ? duration : Duration.ZERO;
+        subtaskStarts = decrement(subtaskStarts(), startTime);
+        subtaskEnds = decrement(subtaskEnds(), startTime.plus(safeDuration));
+        subtaskDurationSum = getSubtaskDurationSum().minus(safeDuration);
+        refreshTimeParameters();
+    }
+
+    public void refreshTimeParameters() {
+        if (subtaskStarts().isEmpty()) {
             this.setStartTime(null);
+            this.endTime = null;
             this.setDuration(Duration.ZERO);
             return;
         }
+        this.setStartTime(subtaskStarts().first().time);
+        this.endTime = subtaskEnds().last().time;
+        this.setDuration(getSubtaskDurationSum());
+    }
 
-        LocalDateTime earliestStart = null;
-        LocalDateTime latestEnd = null;
-        boolean hasValidTimeData = false;
+    private void clearSubtaskTimes() {
+        subtaskStarts = subtaskStarts().cleared();
+        subtaskEnds = subtaskEnds().cleared();
+        subtaskDurationSum = Duration.ZERO;
+        refreshTimeParameters();
+    }
 
-        for (Subtask subtask : subtasks) {
-            if (subtask != null && subtask.getStartTime() != null && subtask.getDuration() != null) {
-                hasValidTimeData = true;
-                LocalDateTime start = subtask.getStartTime();
-                LocalDateTime end = start.plus(subtask.getDuration());
+    // Поля transient не инициализируются, если эпик создан Gson, поэтому создаются при первом обращении
+    private PersistentSortedSet<TimeCount> subtaskStarts() {
+        if (subtaskStarts == null) {
+            subtaskStarts = PersistentSortedSet.empty(BY_TIME);
+        }
+        return subtaskStarts;
+    }
 
-                if (earliestStart == null || start.isBefore(earliestStart)) {
-                    earliestStart = start;
-                }
+    private PersistentSortedSet<TimeCount> subtaskEnds() {
+        if (subtaskEnds == null) {
+            subtaskEnds = PersistentSortedSet.empty(BY_TIME);
+        }
+        return subtaskEnds;
+    }
 
-                if (latestEnd == null || end.isAfter(latestEnd)) {
-                    latestEnd = end;
-                }
-            }
+    private Duration getSubtaskDurationSum() {
+        return subtaskDurationSum != null ? subtaskDurationSum : Duration.ZERO;
+    }
+
+    private static PersistentSortedSet<TimeCount> increment(PersistentSortedSet<TimeCount> multiset,
+                                                            LocalDateTime time) {
+        TimeCount current = multiset.get(new TimeCount(time, 0));
+        return multiset.plus(new TimeCount(time, current != null ? current.count + 1 : 1));
+    }
+
+    private static PersistentSortedSet<TimeCount> decrement(PersistentSortedSet<TimeCount> multiset,
+                                                            LocalDateTime time) {
+        TimeCount current = multiset.get(new TimeCount(time, 0));
+        if (current == null) return multiset;
+        return current.count > 1 ? multiset.plus(new TimeCount(time, current.count - 1)) : multiset.minus(current);
+    }
+
+    private static final class TimeCount {
+        final LocalDateTime time;
+        final int count;
+
+        TimeCount(LocalDateTime time, int count) {
+            this.time = time;
+            this.count = count;
         }
+    }
 
-        if (hasValidTimeData) {
-            this.setStartTime(earliestStart);
-            this.setDuration(Duration.between(earliestStart, latestEnd));
+    public void countSubtaskStatus(TaskStatus status, int delta) {
+        if (status == TaskStatus.NEW) {
+            newSubtasks += delta;
+        } else if (status == TaskStatus.DONE) {
+            doneSubtasks += delta;
         } else {
-            this.setStartTime(null);
-            this.setDuration(Duration.ZERO);
+            inProgressSubtasks += delta;
+        }
+    }
+
+    public void resetSubtaskStatusCounts() {
+        newSubtasks = 0;
+        inProgressSubtasks = 0;
+        doneSubtasks = 0;
+    }
+
+    public int getSubtaskStatusCount(TaskStatus status) {
+        if (status == TaskStatus.NEW) return newSubtasks;
+        if (status == TaskStatus.DONE) return doneSubtasks;
+        return inProgressSubtasks;
+    }
+
+    public TaskStatus calculateStatus() {
+        int total = newSubtasks + inProgressSubtasks + doneSubtasks;
+        if (total == newSubtasks) return TaskStatus.NEW;
+        if (total == doneSubtasks) return TaskStatus.DONE;
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    public void updateTimeParameters(List<Subtask> subtasks) {
+        clearSubtaskTimes();
+        if (subtasks == null) return;
+
+        for (Subtask subtask : subtasks) {
+            if (subtask != null) {
+                addSubtaskTime(subtask.getStartTime(), subtask.getDuration());
+            }
         }
     }
 
@@ -110,6 +257,11 @@ public class Epic extends Task {
         }
     }
 
+    @Override
+    public TaskType getType() {
+        return TaskType.EPIC;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
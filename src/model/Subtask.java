@@ -33,6 +33,16 @@ public class Subtask extends Task {
         this.epicId = epicId;
     }
 
+    public Subtask(Subtask other) {
+        super(other);
+        this.epicId = other.epicId;
+    }
+
+    @Override
+    public Subtask copy() {
+        return new Subtask(this);
+    }
+
     private void validateEpicId(int epicId) {
         if (epicId < MIN_EPIC_ID) {
             throw new IllegalArgumentException("Epic ID должен быть положительным и не менее " + MIN_EPIC_ID);
@@ -37,6 +37,21 @@ public class Task {
         this.duration = duration != null ? duration : Duration.ZERO;
     }
 
+    // Полная копия; id не проверяется, чтобы копировать и ещё не сохранённые задачи
+    public Task(Task other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.description = other.description;
+        this.status = other.status;
+        this.duration = other.duration;
+        this.startTime = other.startTime;
+        this.type = other.type;
+    }
+
+    public Task copy() {
+        return new Task(this);
+    }
+
     private void validateId(int id) {
         if (id < MIN_ID) {
             throw new IllegalArgumentException("ID должен быть положительным и не менее " + MIN_ID);
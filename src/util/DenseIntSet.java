@@ -0,0 +1,133 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Множество int, элементы которого лежат подряд в плотном массиве: обход стоит O(size),
+ * сколько бы элементов ни было удалено раньше. Позиция элемента ищется по хеш-таблице
+ * с открытой адресацией, удаление переносит последний элемент на место удалённого.
+ */
+public class DenseIntSet {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] elements = new int[DEFAULT_CAPACITY];
+    private int size;
+    // Ячейка хранит позицию элемента + 1, ноль означает пустую ячейку
+    private int[] slots = new int[DEFAULT_CAPACITY * 2];
+
+    public boolean add(int value) {
+        if (indexOf(value) >= 0) return false;
+
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+            rehash(slots.length * 2);
+        }
+        elements[size] = value;
+        insertSlot(value, size);
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int mask = slots.length - 1;
+        for (int slot = slot(value, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+            int position = slots[slot] - 1;
+            if (elements[position] == value) {
+                shiftBack(slot, mask);
+                int last = --size;
+                if (position != last) {
+                    int moved = elements[last];
+                    elements[position] = moved;
+                    slots[findSlot(moved)] = position + 1;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    private int indexOf(int value) {
+        int mask = slots.length - 1;
+        for (int slot = slot(value, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+            int position = slots[slot] - 1;
+            if (elements[position] == value) return position;
+        }
+        return -1;
+    }
+
+    private int findSlot(int value) {
+        int mask = slots.length - 1;
+        int slot = slot(value, mask);
+        while (elements[slots[slot] - 1] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insertSlot(int value, int position) {
+        int mask = slots.length - 1;
+        int slot = slot(value, mask);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = position + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insertSlot(elements[i], i);
+        }
+    }
+
+    // Как в IntObjectHashMap: следующие элементы цепочки сдвигаются на освободившееся место
+    private void shiftBack(int slot, int mask) {
+        int free = slot;
+        int current = (free + 1) & mask;
+        while (slots[current] != 0) {
+            int home = slot(elements[slots[current] - 1], mask);
+            boolean canMove = free <= current
+                    ? home <= free || home > current
+                    : home <= free && home > current;
+            if (canMove) {
+                slots[free] = slots[current];
+                free = current;
+            }
+            current = (current + 1) & mask;
+        }
+        slots[free] = 0;
+    }
+
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,376 @@
+package util;
+
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Неизменяемое упорядоченное множество на АВЛ-дереве. Добавление и удаление возвращают новое множество
+ * за O(log n): копируется только путь от корня до изменённого узла, остальные узлы общие со старой версией.
+ * Поэтому старую версию можно читать из других потоков без блокировок, пока пишется новая.
+ * <p>
+ * Элемент, равный по компаратору уже лежащему, заменяет его.
+ */
+public final class PersistentSortedSet<E> {
+    private final Comparator<? super E> comparator;
+    private final Node<E> root;
+
+    private PersistentSortedSet(Comparator<? super E> comparator, Node<E> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    public static <E> PersistentSortedSet<E> empty(Comparator<? super E> comparator) {
+        return new PersistentSortedSet<>(comparator, null);
+    }
+
+    public PersistentSortedSet<E> plus(E element) {
+        return new PersistentSortedSet<>(comparator, insert(root, element));
+    }
+
+    public PersistentSortedSet<E> minus(E element) {
+        Node<E> updated = delete(root, element);
+        return updated == root ? this : new PersistentSortedSet<>(comparator, updated);
+    }
+
+    public PersistentSortedSet<E> cleared() {
+        return root == null ? this : new PersistentSortedSet<>(comparator, null);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public E first() {
+        if (root == null) throw new NoSuchElementException();
+        Node<E> node = root;
+        while (node.left != null) node = node.left;
+        return node.value;
+    }
+
+    public E last() {
+        if (root == null) throw new NoSuchElementException();
+        Node<E> node = root;
+        while (node.right != null) node = node.right;
+        return node.value;
+    }
+
+    /**
+     * Элемент, равный key по компаратору, или null: O(log n).
+     */
+    public E get(E key) {
+        Node<E> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.value);
+            if (cmp == 0) return node.value;
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Отличия от более старой версии того же множества. Общие с ней поддеревья пропускаются целиком,
+     * поэтому после k изменений сравнение стоит O(k log n), а не O(n). removed получает элементы,
+     * которых больше нет, added - новые и заменённые. Элементы с перестроенного пути тоже приходят в added:
+     * по узлам нельзя отличить их от замены тем же объектом.
+     */
+    public void diff(PersistentSortedSet<E> previous, Consumer<? super E> removed, Consumer<? super E> added) {
+        Deque<Object> before = new ArrayDeque<>();
+        Deque<Object> after = new ArrayDeque<>();
+        if (previous.root != null) before.push(previous.root);
+        if (root != null) after.push(root);
+
+        while (!before.isEmpty() && !after.isEmpty()) {
+            Object left = before.peek();
+            Object right = after.peek();
+            if (left == right) {
+                before.pop();
+                after.pop();
+            } else if (left instanceof Node<?> node
+                    && (!(right instanceof Node<?> other) || node.size >= other.size)) {
+                expand(before);
+            } else if (right instanceof Node) {
+                expand(after);
+            } else {
+                Single<E> oldElement = single(left);
+                Single<E> newElement = single(right);
+                int cmp = comparator.compare(oldElement.node.value, newElement.node.value);
+                if (cmp <= 0) before.pop();
+                if (cmp >= 0) after.pop();
+                if (cmp < 0) {
+                    removed.accept(oldElement.node.value);
+                } else if (cmp > 0 || oldElement.node != newElement.node) {
+                    added.accept(newElement.node.value);
+                }
+            }
+        }
+        drain(before, removed);
+        drain(after, added);
+    }
+
+    // Верхний узел стека раскрывается в левое поддерево, свой элемент и правое поддерево
+    @SuppressWarnings("unchecked")
+    private static <E> void expand(Deque<Object> stack) {
+        Node<E> node = (Node<E>) stack.pop();
+        if (node.right != null) stack.push(node.right);
+        stack.push(new Single<>(node));
+        if (node.left != null) stack.push(node.left);
+    }
+
+    private static <E> void drain(Deque<Object> stack, Consumer<? super E> action) {
+        while (!stack.isEmpty()) {
+            if (stack.peek() instanceof Node) {
+                expand(stack);
+            } else {
+                action.accept(PersistentSortedSet.<E>single(stack.pop()).node.value);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Single<E> single(Object entry) {
+        return (Single<E>) entry;
+    }
+
+    /**
+     * Неизменяемый список элементов по возрастанию. Создаётся за O(1), get(i) стоит O(log n).
+     */
+    public List<E> asList() {
+        return asList(Function.identity());
+    }
+
+    public <T> List<T> asList(Function<? super E, ? extends T> mapper) {
+        return new ListView<>(root, mapper);
+    }
+
+    /**
+     * Неизменяемое множество поверх этой версии: contains стоит O(log n), создаётся за O(1).
+     */
+    public Set<E> asSet() {
+        return new SetView<>(this);
+    }
+
+    /**
+     * До limit элементов строго больше from по возрастанию: O(log n + limit), без обхода начала.
+     */
+    public List<E> higher(E from, int limit) {
+        Deque<Node<E>> path = new ArrayDeque<>();
+        for (Node<E> node = root; node != null; ) {
+            if (comparator.compare(node.value, from) > 0) {
+                path.push(node);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+
+        List<E> result = new ArrayList<>(Math.min(limit, 64));
+        while (!path.isEmpty() && result.size() < limit) {
+            Node<E> node = path.pop();
+            result.add(node.value);
+            for (Node<E> child = node.right; child != null; child = child.left) {
+                path.push(child);
+            }
+        }
+        return result;
+    }
+
+    private Node<E> insert(Node<E> node, E element) {
+        if (node == null) return new Node<>(element, null, null);
+
+        int cmp = comparator.compare(element, node.value);
+        if (cmp < 0) return balance(node.value, insert(node.left, element), node.right);
+        if (cmp > 0) return balance(node.value, node.left, insert(node.right, element));
+        return new Node<>(element, node.left, node.right);
+    }
+
+    private Node<E> delete(Node<E> node, E element) {
+        if (node == null) return null;
+
+        int cmp = comparator.compare(element, node.value);
+        if (cmp < 0) {
+            Node<E> left = delete(node.left, element);
+            return left == node.left ? node : balance(node.value, left, node.right);
+        }
+        if (cmp > 0) {
+            Node<E> right = delete(node.right, element);
+            return right == node.right ? node : balance(node.value, node.left, right);
+        }
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+
+        Node<E> successor = node.right;
+        while (successor.left != null) successor = successor.left;
+        return balance(successor.value, node.left, deleteFirst(node.right));
+    }
+
+    private static <E> Node<E> deleteFirst(Node<E> node) {
+        if (node.left == null) return node.right;
+        return balance(node.value, deleteFirst(node.left), node.right);
+    }
+
+    private static <E> Node<E> balance(E value, Node<E> left, Node<E> right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.value, left.left, left.right);
+            }
+            return rotateRight(value, left, right);
+        }
+        if (difference < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.value, right.left, right.right);
+            }
+            return rotateLeft(value, left, right);
+        }
+        return new Node<>(value, left, right);
+    }
+
+    private static <E> Node<E> rotateRight(E value, Node<E> left, Node<E> right) {
+        return new Node<>(left.value, left.left, new Node<>(value, left.right, right));
+    }
+
+    private static <E> Node<E> rotateLeft(E value, Node<E> left, Node<E> right) {
+        return new Node<>(right.value, new Node<>(value, left, right.left), right.right);
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<E> {
+        final E value;
+        final Node<E> left;
+        final Node<E> right;
+        final int height;
+        final int size;
+
+        Node(E value, Node<E> left, Node<E> right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    // Раскрытый узел при сравнении версий: от него остался только собственный элемент
+    private static final class Single<E> {
+        final Node<E> node;
+
+        Single(Node<E> node) {
+            this.node = node;
+        }
+    }
+
+    private static final class SetView<E> extends AbstractSet<E> {
+        private final PersistentSortedSet<E> set;
+
+        SetView(PersistentSortedSet<E> set) {
+            this.set = set;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(Object o) {
+            if (o == null) return false;
+            try {
+                return set.get((E) o) != null;
+            } catch (ClassCastException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return set.asList().iterator();
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
+    }
+
+    private static final class ListView<E, T> extends AbstractList<T> {
+        private final Node<E> root;
+        private final Function<? super E, ? extends T> mapper;
+
+        ListView(Node<E> root, Function<? super E, ? extends T> mapper) {
+            this.root = root;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Индекс " + index + " при размере " + size());
+            }
+            Node<E> node = root;
+            while (true) {
+                int leftSize = PersistentSortedSet.size(node.left);
+                if (index < leftSize) {
+                    node = node.left;
+                } else if (index > leftSize) {
+                    index -= leftSize + 1;
+                    node = node.right;
+                } else {
+                    return mapper.apply(node.value);
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return PersistentSortedSet.size(root);
+        }
+
+        // Обход по стеку: O(1) в среднем на элемент вместо O(log n) у get(i)
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<>() {
+                private final Deque<Node<E>> path = new ArrayDeque<>();
+
+                {
+                    pushLeft(root);
+                }
+
+                private void pushLeft(Node<E> node) {
+                    for (; node != null; node = node.left) {
+                        path.push(node);
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return !path.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    if (path.isEmpty()) throw new NoSuchElementException();
+                    Node<E> node = path.pop();
+                    pushLeft(node.right);
+                    return mapper.apply(node.value);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package util;
+
+import model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Дерево интервалов (декартово дерево по времени начала) с максимальным временем окончания в каждом поддереве.
+ * Проверка пересечения выполняется за O(log n + k), где k - число пересечений.
+ * Интервал запоминается в момент добавления, поэтому удаление по id работает даже если задачу изменили снаружи.
+ * Каждое поддерево также хранит самый длинный свободный промежуток между своими интервалами,
+ * что позволяет найти ближайшее свободное окно нужной длины за O(log n).
+ */
+public class TaskIntervalTree {
+    /**
+     * Интервалы замкнутые, поэтому свободное окно начинается не раньше чем через минуту после конца предыдущего.
+     */
+    public static final Duration SLOT_STEP = Duration.ofMinutes(1);
+
+    private final IntObjectHashMap<Node> nodesById = new IntObjectHashMap<>();
+    private final Random random = new Random();
+    private Node root;
+
+    private static class Node {
+        final Task task;
+        final int id;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        final int priority;
+        LocalDateTime maxEnd;
+        LocalDateTime minStart;
+        // Самый длинный промежуток между интервалами внутри поддерева или null, если промежутков нет
+        Duration maxGap;
+        Node left;
+        Node right;
+
+        Node(Task task, int priority) {
+            this.task = task;
+            this.id = task.getId();
+            this.start = task.getStartTime();
+            // Задача без длительности занимает один момент времени
+            this.end = task.getEndTime() != null ? task.getEndTime() : start;
+            this.priority = priority;
+            this.maxEnd = end;
+            this.minStart = start;
+        }
+    }
+
+    public void add(Task task) {
+        if (task == null || task.getStartTime() == null) return;
+
+        remove(task.getId());
+        Node node = new Node(task, random.nextInt());
+        root = insert(root, node);
+        nodesById.put(node.id, node);
+    }
+
+    public void remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node != null) {
+            root = delete(root, node);
+        }
+    }
+
+    // Как и в узлах, интервал без конца занимает один момент времени
+    public boolean hasOverlap(LocalDateTime start, LocalDateTime end, int excludeId) {
+        if (start == null) return false;
+        return hasOverlap(root, start, end != null ? end : start, excludeId);
+    }
+
+    public List<Task> findOverlapping(LocalDateTime start, LocalDateTime end) {
+        List<Task> result = new ArrayList<>();
+        if (start != null) {
+            collectOverlapping(root, start, end != null ? end : start, result);
+        }
+        return result;
+    }
+
+    /**
+     * Самое раннее время начала не раньше notBefore, при котором интервал длины duration
+     * не пересекается ни с одним интервалом дерева.
+     */
+    public LocalDateTime findFreeSlot(LocalDateTime notBefore, Duration duration) {
+        if (notBefore == null || duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Нужны время начала поиска и неотрицательная длительность");
+        }
+        LocalDateTime[] previousEnd = new LocalDateTime[1];
+        LocalDateTime slot = findFreeSlot(root, notBefore, duration, previousEnd);
+        return slot != null ? slot : slotStart(previousEnd[0], notBefore);
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    private boolean hasOverlap(Node node, LocalDateTime start, LocalDateTime end, int excludeId) {
+        if (node == null || node.maxEnd.isBefore(start)) return false;
+        if (hasOverlap(node.left, start, end, excludeId)) return true;
+        // Правее лежат только интервалы, начинающиеся ещё позже
+        if (node.start.isAfter(end)) return false;
+        if (node.id != excludeId && !node.end.isBefore(start)) return true;
+        return hasOverlap(node.right, start, end, excludeId);
+    }
+
+    // previousEnd[0] - наибольший конец среди уже пройденных интервалов
+    private LocalDateTime findFreeSlot(Node node, LocalDateTime notBefore, Duration duration, LocalDateTime[] previousEnd) {
+        if (node == null) return null;
+
+        // Поддерево целиком раньше notBefore или в нём нет подходящего промежутка: учитываем только его конец
+        boolean fitsBefore = fits(previousEnd[0], node.minStart, notBefore, duration);
+        boolean mayFitInside = node.maxGap != null && node.maxGap.compareTo(duration.plus(SLOT_STEP)) > 0;
+        if (node.maxEnd.isBefore(notBefore) || !fitsBefore && !mayFitInside) {
+            previousEnd[0] = later(previousEnd[0], node.maxEnd);
+            return null;
+        }
+
+        LocalDateTime slot = findFreeSlot(node.left, notBefore, duration, previousEnd);
+        if (slot != null) return slot;
+        if (fits(previousEnd[0], node.start, notBefore, duration)) {
+            return slotStart(previousEnd[0], notBefore);
+        }
+        previousEnd[0] = later(previousEnd[0], node.end);
+        return findFreeSlot(node.right, notBefore, duration, previousEnd);
+    }
+
+    private static boolean fits(LocalDateTime previousEnd, LocalDateTime nextStart, LocalDateTime notBefore, Duration duration) {
+        return slotStart(previousEnd, notBefore).plus(duration).isBefore(nextStart);
+    }
+
+    private static LocalDateTime slotStart(LocalDateTime previousEnd, LocalDateTime notBefore) {
+        return previousEnd == null ? notBefore : later(notBefore, previousEnd.plus(SLOT_STEP));
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        if (a == null) return b;
+        return b.isAfter(a) ? b : a;
+    }
+
+    private void collectOverlapping(Node node, LocalDateTime start, LocalDateTime end, List<Task> result) {
+        if (node == null || node.maxEnd.isBefore(start)) return;
+        collectOverlapping(node.left, start, end, result);
+        if (node.start.isAfter(end)) return;
+        if (!node.end.isBefore(start)) {
+            result.add(node.task);
+        }
+        collectOverlapping(node.right, start, end, result);
+    }
+
+    private Node insert(Node node, Node newNode) {
+        if (node == null) return newNode;
+
+        if (compare(newNode, node) < 0) {
+            node.left = insert(node.left, newNode);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, newNode);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node delete(Node node, Node target) {
+        if (node == null) return null;
+
+        if (node == target) {
+            return merge(node.left, node.right);
+        }
+        if (compare(target, node) < 0) {
+            node.left = delete(node.left, target);
+        } else {
+            node.right = delete(node.right, target);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private void update(Node node) {
+        Node left = node.left;
+        Node right = node.right;
+        Duration maxGap = null;
+        LocalDateTime endSoFar = node.end;
+        if (left != null) {
+            maxGap = longer(left.maxGap, Duration.between(left.maxEnd, node.start));
+            endSoFar = later(left.maxEnd, node.end);
+        }
+        if (right != null) {
+            maxGap = longer(maxGap, Duration.between(endSoFar, right.minStart));
+            maxGap = longer(maxGap, right.maxGap);
+            endSoFar = later(endSoFar, right.maxEnd);
+        }
+        node.maxEnd = endSoFar;
+        node.minStart = left != null ? left.minStart : node.start;
+        node.maxGap = maxGap;
+    }
+
+    private static Duration longer(Duration a, Duration b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return b.compareTo(a) > 0 ? b : a;
+    }
+
+    private static int compare(Node a, Node b) {
+        int byStart = a.start.compareTo(b.start);
+        return byStart != 0 ? byStart : Integer.compare(a.id, b.id);
+    }
+}
@@ -0,0 +1,46 @@
+package util;
+
+import model.TaskStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Вторичный индекс: id задач одного вида по статусам. Статус запоминается при индексации,
+ * поэтому переиндексация корректна, даже если статус объекта уже изменили снаружи.
+ */
+public class TaskStatusIndex {
+    private final Map<TaskStatus, DenseIntSet> idsByStatus = new EnumMap<>(TaskStatus.class);
+
+    public TaskStatusIndex() {
+        for (TaskStatus status : TaskStatus.values()) {
+            idsByStatus.put(status, new DenseIntSet());
+        }
+    }
+
+    public void put(int id, TaskStatus status) {
+        remove(id);
+        if (status != null) {
+            idsByStatus.get(status).add(id);
+        }
+    }
+
+    public void remove(int id) {
+        for (DenseIntSet ids : idsByStatus.values()) {
+            if (ids.remove(id)) return;
+        }
+    }
+
+    public void clear() {
+        idsByStatus.values().forEach(DenseIntSet::clear);
+    }
+
+    public int count(TaskStatus status) {
+        return idsByStatus.get(status).size();
+    }
+
+    public void forEach(TaskStatus status, IntConsumer action) {
+        idsByStatus.get(status).forEach(action);
+    }
+}
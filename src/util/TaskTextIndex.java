@@ -0,0 +1,261 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Инвертированный индекс по тексту задач. Текст режется на слова из букв и цифр в нижнем регистре,
+ * для каждого слова хранится отсортированный массив id. Слова документа запоминаются при индексации,
+ * поэтому переиндексация корректна, даже если название или описание уже изменили снаружи.
+ * <p>
+ * Запрос: слова через пробел должны встретиться все, группы разделяются словом OR,
+ * слово со звёздочкой на конце ищется как префикс: {@code отчёт квартал* OR релиз}.
+ */
+public class TaskTextIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final IntObjectHashMap<String[]> documents = new IntObjectHashMap<>();
+
+    public void put(int id, String... texts) {
+        remove(id);
+        Set<String> terms = new LinkedHashSet<>();
+        for (String text : texts) {
+            terms.addAll(tokenize(text));
+        }
+        if (terms.isEmpty()) return;
+
+        for (String term : terms) {
+            postings.computeIfAbsent(term, key -> new Postings()).add(id);
+        }
+        documents.put(id, terms.toArray(new String[0]));
+    }
+
+    public void remove(int id) {
+        String[] terms = documents.remove(id);
+        if (terms == null) return;
+
+        for (String term : terms) {
+            Postings list = postings.get(term);
+            list.remove(id);
+            if (list.size == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Id документов, подходящих под запрос, по возрастанию.
+     */
+    public int[] search(String query) {
+        int[] result = EMPTY;
+        for (List<String> group : parse(query)) {
+            result = union(result, searchAll(group));
+        }
+        return result;
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                token.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (!token.isEmpty()) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (!token.isEmpty()) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    // Группы слов, разделённые OR; префикс помечается звёздочкой на конце
+    private static List<List<String>> parse(String query) {
+        List<List<String>> groups = new ArrayList<>();
+        if (query == null) return groups;
+
+        List<String> group = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.equals("OR")) {
+                if (!group.isEmpty()) groups.add(group);
+                group = new ArrayList<>();
+            } else if (!word.equals("AND")) {
+                List<String> tokens = tokenize(word);
+                if (tokens.isEmpty()) continue;
+                if (word.endsWith("*")) {
+                    tokens.set(tokens.size() - 1, tokens.get(tokens.size() - 1) + "*");
+                }
+                group.addAll(tokens);
+            }
+        }
+        if (!group.isEmpty()) groups.add(group);
+        return groups;
+    }
+
+    private int[] searchAll(List<String> terms) {
+        List<Postings> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Postings list = lookup(term);
+            if (list == null) return EMPTY;
+            lists.add(list);
+        }
+        // Пересечение начинается с самого короткого списка, остальные не копируются
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        int[] result = lists.get(0).toArray();
+        int count = result.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = retainAll(result, count, lists.get(i));
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private Postings lookup(String term) {
+        if (!term.endsWith("*")) {
+            return postings.get(term);
+        }
+
+        String prefix = term.substring(0, term.length() - 1);
+        List<int[]> lists = new ArrayList<>();
+        for (Postings list : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            lists.add(list.toArray());
+        }
+        // Попарное слияние: O(n log k) вместо O(n k) при последовательном объединении
+        while (lists.size() > 1) {
+            List<int[]> merged = new ArrayList<>((lists.size() + 1) / 2);
+            for (int i = 0; i + 1 < lists.size(); i += 2) {
+                merged.add(union(lists.get(i), lists.get(i + 1)));
+            }
+            if (lists.size() % 2 != 0) merged.add(lists.get(lists.size() - 1));
+            lists = merged;
+        }
+        return lists.isEmpty() ? null : new Postings(lists.get(0));
+    }
+
+    // Оставляет в начале ids[0..count) только те id, что есть в large. Каждый id ищется галопом
+    // от позиции предыдущего, поэтому короткий список проверяется против длинного за O(k log(n/k))
+    private static int retainAll(int[] ids, int count, Postings large) {
+        int[] other = large.ids;
+        int length = large.size;
+        int kept = 0;
+        int from = 0;
+        if (length < count * 8L) {
+            // Списки сравнимой длины дешевле слить линейно
+            for (int i = 0; i < count && from < length; i++) {
+                int id = ids[i];
+                while (from < length && other[from] < id) from++;
+                if (from < length && other[from] == id) {
+                    ids[kept++] = id;
+                    from++;
+                }
+            }
+            return kept;
+        }
+        for (int i = 0; i < count && from < length; i++) {
+            int id = ids[i];
+            int step = 1;
+            int to = from;
+            while (to < length && other[to] < id) {
+                from = to + 1;
+                to += step;
+                step <<= 1;
+            }
+            int high = Math.min(to, length - 1);
+            while (from <= high) {
+                int middle = (from + high) >>> 1;
+                if (other[middle] < id) {
+                    from = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (from < length && other[from] == id) {
+                ids[kept++] = id;
+                from++;
+            }
+        }
+        return kept;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) result[count++] = a[i++];
+        while (j < b.length) result[count++] = b[j++];
+        return Arrays.copyOf(result, count);
+    }
+
+    private static class Postings {
+        private int[] ids;
+        private int size;
+
+        Postings() {
+            ids = new int[4];
+        }
+
+        Postings(int[] ids) {
+            this.ids = ids;
+            this.size = ids.length;
+        }
+
+        void add(int id) {
+            // id растут, поэтому обычно это добавление в конец
+            int position = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) return;
+            if (position < 0) position = -position - 1;
+
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) return;
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package http;
+
+import manager.Managers;
+import manager.TaskManager;
+import model.Epic;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchHandlerTest {
+    private HttpTaskServer server;
+    private TaskManager taskManager;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        taskManager = Managers.getDefault();
+        server = new HttpTaskServer(taskManager);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testBatch_Success() throws Exception {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Desc"));
+        Task old = taskManager.createTask(new Task("Old", "Desc"));
+        String body = "[" +
+                "{\"action\": \"CREATE\", \"task\": {\"title\": \"Batch task\", \"description\": \"Desc\", \"status\": \"NEW\"}}," +
+                "{\"action\": \"CREATE\", \"type\": \"SUBTASK\", \"task\": {\"title\": \"Batch sub\", \"description\": \"Desc\"," +
+                " \"status\": \"DONE\", \"epicId\": " + epic.getId() + "}}," +
+                "{\"action\": \"DELETE\", \"id\": " + old.getId() + "}," +
+                "{\"action\": \"UPDATE\", \"id\": 10000, \"task\": {\"title\": \"Missing\", \"status\": \"NEW\"}}," +
+                "{\"action\": \"CREATE\"}" +
+                "]";
+
+        HttpResponse<String> response = post(body);
+
+        assertEquals(200, response.statusCode());
+        String result = response.body().replaceAll("\\s", "");
+        int applied = result.indexOf("\"status\":\"APPLIED\"");
+        assertTrue(applied >= 0 && result.indexOf("\"status\":\"NOT_FOUND\"") > applied);
+        assertTrue(result.endsWith("{\"status\":\"INVALID\"}]"));
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertEquals("Batch task", taskManager.getAllTasks().get(0).getTitle());
+        assertEquals(1, taskManager.getSubtasksByEpic(epic.getId()).size());
+    }
+
+    @Test
+    public void testBatch_NonPositiveIdIsInvalidItem() throws Exception {
+        String body = "[" +
+                "{\"action\": \"UPDATE\", \"id\": 0, \"task\": {\"title\": \"Zero\", \"status\": \"NEW\"}}," +
+                "{\"action\": \"DELETE\", \"id\": -5}," +
+                "{\"action\": \"CREATE\", \"task\": {\"title\": \"Valid\", \"description\": \"Desc\", \"status\": \"NEW\"}}" +
+                "]";
+
+        HttpResponse<String> response = post(body);
+
+        assertEquals(200, response.statusCode());
+        String result = response.body().replaceAll("\\s", "");
+        assertTrue(result.startsWith("[{\"status\":\"INVALID\"},{\"status\":\"INVALID\"},{\"status\":\"APPLIED\""));
+        assertEquals(1, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    public void testBatch_InvalidJson() throws Exception {
+        assertEquals(400, post("{not json").statusCode());
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
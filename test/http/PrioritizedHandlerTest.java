@@ -89,6 +89,92 @@ public class PrioritizedHandlerTest {
         assertEquals(createdTask2.getId(), prioritized.get(1).getId());
     }
 
+    @Test
+    public void testGetPrioritizedTasks_WindowWithLimitAndNextLink() throws Exception {
+        java.time.LocalDateTime day = java.time.LocalDateTime.of(2024, 3, 1, 0, 0);
+        for (int hour = 0; hour < 48; hour += 2) {
+            Task task = new Task("Task " + hour, "Description");
+            task.setStartTime(day.plusHours(hour));
+            task.setDuration(java.time.Duration.ofMinutes(30));
+            assertNotNull(taskManager.createTask(task));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?from=2024-03-01T04:00&to=2024-03-02T00:00&limit=5"))
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        Type listType = new TypeToken<List<Task>>() {}.getType();
+        List<Task> page = server.getGson().fromJson(response.body(), listType);
+        assertEquals(5, page.size());
+        assertEquals(day.plusHours(4), page.get(0).getStartTime());
+        assertEquals(day.plusHours(12), page.get(4).getStartTime());
+        String link = response.headers().firstValue("Link").orElseThrow();
+        assertTrue(link.contains("from=2024-03-01T14%3A00"), link);
+
+        HttpRequest lastPage = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?from=2024-03-01T14:00&to=2024-03-02T00:00&limit=5"))
+                .GET()
+                .build();
+        HttpResponse<String> lastResponse = client.send(lastPage, HttpResponse.BodyHandlers.ofString());
+        List<Task> rest = server.getGson().fromJson(lastResponse.body(), listType);
+        assertEquals(5, rest.size());
+        assertEquals(day.plusHours(22), rest.get(4).getStartTime());
+        assertTrue(lastResponse.headers().firstValue("Link").isEmpty());
+    }
+
+    @Test
+    public void testGetPrioritizedTasks_InvalidWindowParameters() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        for (String query : List.of("from=yesterday", "limit=0", "limit=abc")) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/prioritized?" + query))
+                    .GET()
+                    .build();
+            assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode(), query);
+        }
+    }
+
+    @Test
+    public void testFindFreeSlotAndAutoSchedule() throws Exception {
+        java.time.LocalDateTime start = java.time.LocalDateTime.of(2024, 3, 1, 9, 0);
+        Task busy = new Task("Busy", "Description");
+        busy.setStartTime(start);
+        busy.setDuration(java.time.Duration.ofMinutes(60));
+        taskManager.createTask(busy);
+        Task pending = new Task("Pending", "Description");
+        pending.setDuration(java.time.Duration.ofMinutes(30));
+        int pendingId = taskManager.createTask(pending).getId();
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest slotRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized/slot?from=2024-03-01T09:30&duration=PT30M"))
+                .GET()
+                .build();
+        HttpResponse<String> slotResponse = client.send(slotRequest, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, slotResponse.statusCode());
+        assertTrue(slotResponse.body().contains("2024-03-01T10:01:00"), slotResponse.body());
+
+        HttpRequest scheduleRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized/schedule"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"ids\": [" + pendingId + "], \"from\": \"2024-03-01T08:00:00\"}"))
+                .build();
+        HttpResponse<String> scheduleResponse = client.send(scheduleRequest, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, scheduleResponse.statusCode());
+        assertEquals(start.minusHours(1), taskManager.getTask(pendingId).getStartTime());
+
+        HttpRequest badRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized/slot?duration=soon"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(badRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
     @Test
     public void testGetPrioritizedTasks_MethodNotAllowed() throws Exception {
         HttpClient client = HttpClient.newHttpClient();
@@ -101,4 +187,31 @@ public class PrioritizedHandlerTest {
 
         assertEquals(405, response.statusCode());
     }
+
+    @Test
+    public void testGetConflicts_StreamsOverlappingPairs() throws Exception {
+        java.time.LocalDateTime start = java.time.LocalDateTime.of(2024, 5, 1, 10, 0);
+        Task first = new Task("First", "Desc");
+        first.setStartTime(start);
+        first.setDuration(java.time.Duration.ofMinutes(60));
+        taskManager.createTask(first);
+        Task second = new Task("Second", "Desc");
+        second.setStartTime(start.plusHours(2));
+        second.setDuration(java.time.Duration.ofMinutes(30));
+        taskManager.createTask(second);
+        // Правка в обход менеджера, как после импорта
+        second.setStartTime(start.plusMinutes(45));
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized/conflicts"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        String body = response.body().replaceAll("\\s", "");
+        assertEquals("[{\"first\":" + first.getId() + ",\"second\":" + second.getId()
+                + ",\"overlapStart\":\"2024-05-01T10:45:00\",\"overlapEnd\":\"2024-05-01T11:00:00\"}]", body);
+    }
 }
@@ -0,0 +1,63 @@
+package http;
+
+import manager.Managers;
+import manager.TaskManager;
+import model.Epic;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchHandlerTest {
+    private HttpTaskServer server;
+    private TaskManager taskManager;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        taskManager = Managers.getDefault();
+        server = new HttpTaskServer(taskManager);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testSearch_Success() throws Exception {
+        taskManager.createTask(new Task("Quarterly report", "Numbers"));
+        taskManager.createEpic(new Epic("Release", "Report for the release"));
+        taskManager.createTask(new Task("Unrelated", "Nothing here"));
+
+        HttpResponse<String> response = get("/search?q=" + URLEncoder.encode("report rel*", StandardCharsets.UTF_8));
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("Release"));
+        assertFalse(response.body().contains("Quarterly report"));
+        assertFalse(response.body().contains("Unrelated"));
+    }
+
+    @Test
+    public void testSearch_MissingQuery() throws Exception {
+        assertEquals(400, get("/search").statusCode());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -13,6 +13,11 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -80,6 +85,129 @@ public class TaskHandlerTest {
         assertTrue(response.body().contains("Test Task 2"));
     }
 
+    @Test
+    public void testGetTasksByStatus() throws Exception {
+        Task done = new Task("Done Task", "Description");
+        done.setStatus(TaskStatus.DONE);
+        taskManager.createTask(done);
+        taskManager.createTask(new Task("New Task", "Description"));
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=done"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("Done Task"));
+        assertFalse(response.body().contains("New Task"));
+
+        HttpResponse<String> invalid = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=LATER"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, invalid.statusCode());
+    }
+
+    @Test
+    public void testGetTasksPagesFollowLinkHeader() throws Exception {
+        for (int i = 1; i <= 7; i++) {
+            Task task = new Task("Page Task " + i, "Description");
+            task.setStatus(i % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW);
+            taskManager.createTask(task);
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        List<String> bodies = new ArrayList<>();
+        String next = "/tasks?limit=3";
+        while (next != null) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080" + next))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            bodies.add(response.body());
+            next = response.headers().firstValue("Link")
+                    .map(link -> link.substring(link.indexOf('<') + 1, link.indexOf('>')))
+                    .orElse(null);
+        }
+        assertEquals(3, bodies.size());
+        assertTrue(bodies.get(0).contains("Page Task 1") && bodies.get(0).contains("Page Task 3"));
+        assertTrue(bodies.get(1).contains("Page Task 4") && !bodies.get(1).contains("Page Task 3"));
+        assertTrue(bodies.get(2).contains("Page Task 7"));
+
+        HttpResponse<String> done = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=DONE&limit=2"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(done.body().contains("Page Task 2") && done.body().contains("Page Task 4"));
+        assertFalse(done.body().contains("Page Task 6"));
+        String link = done.headers().firstValue("Link").orElseThrow();
+        assertTrue(link.contains("status=DONE") && link.contains("after="), link);
+
+        for (String query : List.of("limit=0", "limit=abc", "after=last")) {
+            HttpResponse<String> invalid = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks?" + query))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, invalid.statusCode(), query);
+        }
+    }
+
+    @Test
+    public void testGetTasksAnswersNotModifiedUntilTasksChange() throws Exception {
+        taskManager.createTask(new Task("Cached Task", "Description"));
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        // Просмотр меняет историю, но не список задач
+        taskManager.getTask(taskManager.getAllTasks().get(0).getId());
+        HttpResponse<String> cached = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("If-None-Match", etag)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, cached.statusCode());
+        assertTrue(cached.body().isEmpty());
+
+        taskManager.createTask(new Task("New Task", "Description"));
+        HttpResponse<String> changed = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("If-None-Match", etag)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertTrue(changed.body().contains("New Task"));
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    public void testCreateTaskWithoutDurationOverlappingExisting_Rejected() throws Exception {
+        Task existing = new Task("Existing", "Desc");
+        existing.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+        existing.setDuration(Duration.ofHours(2));
+        taskManager.createTask(existing);
+
+        // Без duration Gson оставляет поле пустым, и у задачи нет времени окончания
+        String jsonBody = "{\"title\": \"Instant\", \"description\": \"Desc\", \"status\": \"NEW\", "
+                + "\"startTime\": \"2025-01-01T11:00:00\"}";
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(406, response.statusCode());
+        assertEquals(1, taskManager.getAllTasks().size());
+    }
+
     @Test
     public void testUpdateTask_Success() throws Exception {
         Task taskToCreate = new Task("Original Task", "Original Description");
@@ -106,6 +234,7 @@ public class TaskHandlerTest {
         assertEquals(200, response.statusCode());
         assertNotNull(response.body());
         assertFalse(response.body().isEmpty());
+        assertTrue(taskManager.getHistory().isEmpty(), "Обновление не должно попадать в историю просмотров");
 
         Task taskFromManager = taskManager.getTask(originalId);
         assertNotNull(taskFromManager);
@@ -158,4 +287,44 @@ public class TaskHandlerTest {
 
         assertEquals(404, response.statusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConcurrentCreateTasks_AllSucceed() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String jsonBody = "{\"title\": \"Parallel " + i + "\", \"description\": \"Desc\", \"status\": \"NEW\"}";
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks"))
+                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.get().statusCode());
+        }
+        assertEquals(50, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    public void testGetAllTasks_StreamedAsChunkedJsonArray() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            taskManager.createTask(new Task("Streamed " + i, "Description"));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("chunked", response.headers().firstValue("Transfer-Encoding").orElse(""));
+        Task[] tasks = server.getGson().fromJson(response.body(), Task[].class);
+        assertEquals(500, tasks.length);
+        assertEquals("Streamed 0", tasks[0].getTitle());
+    }
+}
@@ -0,0 +1,218 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLoopTaskManagerTest {
+
+    @Test
+    void shouldNotWrapThreadSafeManagers() throws Exception {
+        try (EventLoopTaskManager manager = Managers.getEventLoop(Managers.getDefault())) {
+            assertSame(manager, Managers.getEventLoop(manager));
+            assertSame(manager, Managers.getSynchronized(manager));
+            assertSame(manager, Managers.getConcurrent(manager));
+        }
+    }
+
+    @Test
+    void readsShouldSeeOwnWritesAndOldSnapshotsShouldNotChange() throws Exception {
+        try (EventLoopTaskManager manager = new EventLoopTaskManager(Managers.getDefault())) {
+            Task task = manager.createTask(new Task("Старое", "Desc"));
+            List<Task> before = manager.getAllTasks();
+
+            Task changed = new Task(task.getId(), "Новое", "Desc", TaskStatus.DONE);
+            assertTrue(manager.updateTask(changed));
+
+            assertEquals("Старое", before.get(0).getTitle());
+            assertEquals("Новое", manager.peekTask(task.getId()).getTitle());
+            assertEquals(1, manager.getTasksByStatus(TaskStatus.DONE).size());
+            assertThrows(UnsupportedOperationException.class, () -> before.add(changed));
+        }
+    }
+
+    @Test
+    void snapshotShouldKeepEpicTimeAndHistory() throws Exception {
+        try (EventLoopTaskManager manager = new EventLoopTaskManager(Managers.getDefault())) {
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Subtask subtask = new Subtask("Sub", "Desc", epic.getId());
+            subtask.setStartTime(start);
+            subtask.setDuration(Duration.ofHours(2));
+            manager.createSubtask(subtask);
+
+            Epic copy = manager.getEpic(epic.getId());
+            assertNotSame(epic, copy);
+            assertEquals(start, copy.getStartTime());
+            assertEquals(start.plusHours(2), copy.getEndTime());
+            assertEquals(List.of(copy), manager.getHistory());
+            assertEquals(List.of(subtask), manager.getPrioritizedTasks(start, start.plusHours(1), 10));
+            assertTrue(manager.getPrioritizedTasks(start.plusMinutes(1), null, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void failedCommandShouldNotBreakTheLoop() throws Exception {
+        try (EventLoopTaskManager manager = new EventLoopTaskManager(Managers.getDefault())) {
+            CompletableFuture<Object> failed = manager.submit(tm -> {
+                throw new IllegalArgumentException("Ошибка");
+            });
+            CompletionException error = assertThrows(CompletionException.class, failed::join);
+            assertInstanceOf(IllegalArgumentException.class, error.getCause());
+
+            Task task = manager.submit(tm -> tm.createTask(new Task("Task", "Desc"))).join();
+            assertTrue(manager.exists(task.getId()));
+        }
+    }
+
+    @Test
+    void errorInCommandShouldNotStopTheWriter() throws Exception {
+        try (EventLoopTaskManager manager = new EventLoopTaskManager(Managers.getDefault())) {
+            CompletableFuture<Object> failed = manager.submit(tm -> {
+                throw new AssertionError("Ошибка");
+            });
+            CompletionException error = assertThrows(CompletionException.class, failed::join);
+            assertInstanceOf(AssertionError.class, error.getCause());
+
+            Task task = manager.createTask(new Task("Task", "Desc"));
+            assertTrue(manager.exists(task.getId()));
+        }
+    }
+
+    @Test
+    void snapshotShouldCopyOnlyChangedTasks() throws Exception {
+        try (EventLoopTaskManager manager = new EventLoopTaskManager(Managers.getDefault())) {
+            Task untouched = manager.peekTask(manager.createTask(new Task("Task", "Desc")).getId());
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            Epic before = manager.peekEpic(epic.getId());
+
+            Subtask subtask = new Subtask("Sub", "Desc", epic.getId());
+            subtask.setStatus(TaskStatus.DONE);
+            manager.createSubtask(subtask);
+
+            assertSame(untouched, manager.peekTask(untouched.getId()), "Неизменённая задача не копируется заново");
+            assertEquals(TaskStatus.NEW, before.getStatus());
+            assertEquals(TaskStatus.DONE, manager.peekEpic(epic.getId()).getStatus());
+            assertEquals(List.of(manager.peekEpic(epic.getId())), manager.getEpicsByStatus(TaskStatus.DONE));
+            assertTrue(manager.getEpicsByStatus(TaskStatus.NEW).isEmpty());
+
+            assertTrue(manager.deleteTask(untouched.getId()));
+            assertNull(manager.peekTask(untouched.getId()));
+            assertTrue(manager.getTasksByStatus(TaskStatus.NEW).isEmpty());
+        }
+    }
+
+    @Test
+    void conflictConsumerShouldNotBlockWriter() throws Exception {
+        TaskManager source = Managers.getDefault();
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        // Пересечение создаётся в обход проверки до передачи менеджера писателю
+        Task first = new Task("First", "Desc");
+        first.setStartTime(start);
+        first.setDuration(Duration.ofHours(1));
+        Task second = new Task("Second", "Desc");
+        second.setStartTime(start.plusHours(2));
+        second.setDuration(Duration.ofHours(1));
+        source.createTask(first);
+        source.createTask(second);
+        second.setStartTime(start.plusMinutes(30));
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try (EventLoopTaskManager manager = new EventLoopTaskManager(source)) {
+            List<Integer> pairs = new ArrayList<>();
+            manager.forEachConflict((a, b) -> {
+                pairs.add(a.getId());
+                Future<Task> created = writer.submit(() -> manager.createTask(new Task("Writer", "Desc")));
+                assertDoesNotThrow(() -> created.get(5, TimeUnit.SECONDS), "Запись не должна ждать потребителя пар");
+            });
+
+            assertEquals(List.of(first.getId()), pairs);
+            assertEquals(3, manager.getAllTasks().size());
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void readsShouldStayConsistentUnderConcurrentWrites() throws Exception {
+        try (EventLoopTaskManager manager = new EventLoopTaskManager(Managers.getDefault())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 4_000; i++) {
+                int n = i;
+                executor.execute(() -> {
+                    try {
+                        switch (n % 4) {
+                            case 0:
+                                Task task = manager.createTask(new Task("Task" + n, "Desc"));
+                                assertNotNull(manager.getTask(task.getId()));
+                                break;
+                            case 1:
+                                manager.createSubtask(new Subtask("Sub" + n, "Desc", epic.getId()));
+                                break;
+                            case 2:
+                                List<Task> tasks = manager.getAllTasks();
+                                assertEquals(tasks.size(), new HashSet<>(tasks).size());
+                                break;
+                            default:
+                                manager.getSubtasksByEpic(epic.getId())
+                                        .forEach(item -> assertEquals(epic.getId(), item.getEpicId()));
+                                break;
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            assertNull(failure.get());
+
+            assertEquals(1_000, manager.getAllTasks().size());
+            assertEquals(1_000, manager.getSubtasksByEpic(epic.getId()).size());
+            assertEquals(1_000, manager.getHistory().size());
+        }
+    }
+
+    @Test
+    void shouldFlushWriteBehindManagerAndRejectCommandsAfterClose() throws Exception {
+        File file = File.createTempFile("event-loop", ".csv");
+        file.deleteOnExit();
+        EventLoopTaskManager manager = new EventLoopTaskManager(
+                new FileBackedTaskManager(file, Duration.ofHours(1), 1_000));
+
+        List<CompletableFuture<Task>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            futures.add(manager.submit(tm -> tm.createTask(new Task("Task" + n, "Desc"))));
+        }
+        futures.forEach(CompletableFuture::join);
+        assertEquals(100, FileBackedTaskManager.loadFromFile(file).getAllTasks().size(),
+                "После ответа изменения уже на диске");
+
+        manager.close();
+        CompletableFuture<Task> late = manager.submit(tm -> tm.createTask(new Task("Поздно", "Desc")));
+        assertThrows(CompletionException.class, late::join);
+        assertThrows(IllegalStateException.class, () -> manager.createTask(new Task("Поздно", "Desc")));
+    }
+}
@@ -0,0 +1,269 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileBackedTaskManagerTest {
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("kanban", ".csv");
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void strictModeShouldSaveAfterEachOperation() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        Task task = manager.createTask(new Task("Task", "Desc"));
+
+        assertTrue(Files.readString(file.toPath()).contains("Task"));
+        assertFalse(manager.isWriteBehind());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(task, loaded.getTask(task.getId()));
+    }
+
+    @Test
+    void shouldRestoreEpicsSubtasksAndHistory() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", epic.getId()));
+        manager.getSubtask(subtask.getId());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(1, loaded.getSubtasksByEpic(epic.getId()).size());
+        assertTrue(loaded.isEpicStatusConsistent(epic.getId()));
+        assertEquals(subtask.getId(), loaded.getHistory().get(0).getId());
+    }
+
+    @Test
+    void writeBehindModeShouldDeferSaveUntilClose() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, Duration.ofHours(1), 1_000);
+        manager.createTask(new Task("Deferred", "Desc"));
+
+        assertFalse(Files.readString(file.toPath()).contains("Deferred"));
+
+        manager.close();
+        assertTrue(Files.readString(file.toPath()).contains("Deferred"));
+    }
+
+    @Test
+    void writeBehindModeShouldFlushAfterChangeThreshold() throws Exception {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, Duration.ofHours(1), 3);
+        manager.createTask(new Task("Task1", "Desc"));
+        manager.createTask(new Task("Task2", "Desc"));
+        manager.createTask(new Task("Task3", "Desc"));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Files.readString(file.toPath()).contains("Task3") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(Files.readString(file.toPath()).contains("Task3"));
+        manager.close();
+    }
+
+    @Test
+    void writeBehindModeShouldFlushOnInterval() throws Exception {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, Duration.ofMillis(20), 1_000);
+        manager.createTask(new Task("Timed", "Desc"));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Files.readString(file.toPath()).contains("Timed") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(Files.readString(file.toPath()).contains("Timed"));
+        manager.close();
+    }
+
+    @Test
+    void loaderShouldParseRowsSplitAcrossSmallChunks() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        for (int i = 0; i < 50; i++) {
+            Subtask subtask = new Subtask("Sub" + i, "Описание " + i, epic.getId());
+            subtask.setStartTime(start.plusHours(i));
+            subtask.setDuration(Duration.ofMinutes(30));
+            manager.createSubtask(subtask);
+        }
+        manager.createTask(new Task("Длинная задача " + "x".repeat(200), "Desc"));
+        manager.getEpic(epic.getId());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FileBackedTaskManager loaded = new CsvTaskLoader(pool, 16).load(new FileBackedTaskManager(file), file);
+
+            assertEquals(manager.getAllTasks(), loaded.getAllTasks());
+            assertEquals(50, loaded.getSubtasksByEpic(epic.getId()).size());
+            assertEquals(manager.getPrioritizedTasks(), loaded.getPrioritizedTasks());
+            assertEquals(manager.getEpic(epic.getId()).getEndTime(), loaded.getEpic(epic.getId()).getEndTime());
+            assertEquals(epic.getId(), loaded.getHistory().get(0).getId());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void loaderShouldLinkSubtasksListedBeforeTheirEpic() throws IOException {
+        Files.writeString(file.toPath(), "id,type,name,status,description,startTime,duration,epic\r\n"
+                + "2,SUBTASK,Sub,DONE,Desc,,,1\r\n"
+                + "1,EPIC,Epic,NEW,Desc,,,\r\n"
+                + "history,2,1\r\n");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+
+        assertEquals(1, loaded.getSubtasksByEpic(1).size());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(1).getStatus());
+        assertEquals(2, loaded.getHistory().size());
+        assertEquals(3, loaded.createTask(new Task("Next", "Desc")).getId());
+    }
+
+    @Test
+    void loaderShouldHandleEmptyAndHeaderOnlyFiles() throws IOException {
+        assertTrue(FileBackedTaskManager.loadFromFile(file).getAllTasks().isEmpty());
+
+        Files.writeString(file.toPath(), "id,type,name,status,description,startTime,duration,epic");
+        assertTrue(FileBackedTaskManager.loadFromFile(file).getAllTasks().isEmpty());
+    }
+
+    @Test
+    void binaryFormatShouldRoundTripAndBeSmallerThanCsv() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, SnapshotFormat.BINARY);
+        Epic epic = manager.createEpic(new Epic("Эпик", "Desc"));
+        for (int i = 0; i < 20; i++) {
+            Subtask subtask = new Subtask("Sub" + i, "Desc", epic.getId());
+            subtask.setStartTime(LocalDateTime.of(2024, 1, 1, 10, 0, 30).plusHours(i));
+            subtask.setDuration(Duration.ofMinutes(45));
+            manager.createSubtask(subtask);
+        }
+        Task task = manager.createTask(new Task("Task", null));
+        manager.getTask(task.getId());
+
+        assertEquals(SnapshotFormat.BINARY, FileBackedTaskManager.detectFormat(file));
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(SnapshotFormat.BINARY, loaded.getFormat());
+        assertEquals(manager.getAllSubtasks(), loaded.getAllSubtasks());
+        assertEquals(manager.getPrioritizedTasks().get(0).getStartTime(), loaded.getPrioritizedTasks().get(0).getStartTime());
+        assertNull(loaded.getTask(task.getId()).getDescription());
+        assertEquals(manager.peekEpic(epic.getId()).getEndTime(), loaded.getEpic(epic.getId()).getEndTime());
+
+        File csv = File.createTempFile("kanban", ".csv");
+        try {
+            FileBackedTaskManager.convert(file, csv, SnapshotFormat.CSV);
+            assertEquals(SnapshotFormat.CSV, FileBackedTaskManager.detectFormat(csv));
+            assertTrue(file.length() < csv.length());
+            assertEquals(manager.getAllSubtasks(), FileBackedTaskManager.loadFromFile(csv).getAllSubtasks());
+        } finally {
+            csv.delete();
+        }
+    }
+
+    @Test
+    void loadingWithAnotherFormatShouldConvertOnNextSave() {
+        FileBackedTaskManager csvManager = new FileBackedTaskManager(file);
+        csvManager.createTask(new Task("Task", "Desc"));
+
+        FileBackedTaskManager binaryManager = FileBackedTaskManager.loadFromFile(file, SnapshotFormat.BINARY);
+        binaryManager.createTask(new Task("Task2", "Desc"));
+
+        assertEquals(SnapshotFormat.BINARY, FileBackedTaskManager.detectFormat(file));
+        assertEquals(2, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+    }
+
+    @Test
+    void corruptedBinarySnapshotShouldFailWithSaveException() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, SnapshotFormat.BINARY);
+        manager.createTask(new Task("Task", "Description"));
+        byte[] data = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(data, data.length - 5));
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(file));
+    }
+
+    @Test
+    void hugeCountInBinarySnapshotShouldFailWithSaveException() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, SnapshotFormat.BINARY);
+        manager.createTask(new Task("Task", "Description"));
+        byte[] data = Files.readAllBytes(file.toPath());
+        // Число просмотров в истории сразу за заголовком заменяется на Integer.MAX_VALUE
+        int header = BinarySnapshotCodec.MAGIC.length + 1;
+        byte[] corrupted = new byte[header + 5];
+        System.arraycopy(data, 0, corrupted, 0, header);
+        System.arraycopy(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}, 0,
+                corrupted, header, 5);
+        Files.write(file.toPath(), corrupted);
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(file));
+    }
+
+    @Test
+    void peekShouldNotRewriteFile() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        String saved = Files.readString(file.toPath());
+
+        assertEquals(task, manager.peekTask(task.getId()));
+        assertTrue(manager.exists(task.getId()));
+        assertEquals(saved, Files.readString(file.toPath()));
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    @Test
+    void shouldRejectInvalidWriteBehindSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new FileBackedTaskManager(file, Duration.ZERO, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> new FileBackedTaskManager(file, Duration.ofSeconds(1), 0));
+    }
+
+    @Test
+    void batchShouldSaveOnce() {
+        int[] saves = {0};
+        FileBackedTaskManager manager = new FileBackedTaskManager(file) {
+            @Override
+            protected void save() {
+                saves[0]++;
+                super.save();
+            }
+        };
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        saves[0] = 0;
+
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            operations.add(BatchOperation.create(new Subtask("Sub" + i, "Desc", epic.getId())));
+        }
+        manager.applyBatch(operations);
+
+        assertEquals(1, saves[0]);
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(100, loaded.getSubtasksByEpic(epic.getId()).size());
+        assertTrue(loaded.isEpicStatusConsistent(epic.getId()));
+
+        manager.applyBatch(List.of(BatchOperation.delete(10_000)));
+        assertEquals(1, saves[0]);
+    }
+}
@@ -102,4 +102,96 @@ public class HistoryManagerTest {
         assertEquals(1, history.size(), "Удаление несуществующего элемента не должно менять историю");
         assertEquals(task1, history.get(0), "Задача должна остаться в истории");
     }
+
+    @Test
+    void testBoundedHistoryEvictsOldest() {
+        HistoryManager bounded = Managers.getDefaultHistory(2);
+        bounded.add(task1);
+        bounded.add(task2);
+        bounded.add(task3);
+
+        List<Task> history = bounded.getHistory();
+        assertEquals(List.of(task2, task3), history, "Самый давний просмотр должен быть вытеснен");
+    }
+
+    @Test
+    void testBoundedHistoryRefreshesRepeatedView() {
+        HistoryManager bounded = Managers.getDefaultHistory(2);
+        bounded.add(task1);
+        bounded.add(task2);
+        bounded.add(task1);
+        bounded.add(task3);
+
+        assertEquals(List.of(task1, task3), bounded.getHistory(), "Повторный просмотр не должен вытесняться первым");
+    }
+
+    @Test
+    void testBoundedHistoryStaysFlat() {
+        HistoryManager bounded = new InMemoryHistoryManager(10);
+        for (int i = 1; i <= 1_000; i++) {
+            Task task = new Task("Task" + i, "Desc");
+            task.setId(i);
+            bounded.add(task);
+        }
+        List<Task> history = bounded.getHistory();
+        assertEquals(10, history.size());
+        assertEquals(991, history.get(0).getId());
+
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryHistoryManager(0));
+    }
+
+    @Test
+    void testPublishedHistoryDoesNotChange() {
+        InMemoryHistoryManager bounded = new InMemoryHistoryManager(15);
+        List<List<Integer>> expected = new java.util.ArrayList<>();
+        List<List<Task>> published = new java.util.ArrayList<>();
+        java.util.LinkedHashMap<Integer, Task> model = new java.util.LinkedHashMap<>();
+        java.util.Random random = new java.util.Random(8);
+        for (int i = 0; i < 2_000; i++) {
+            int id = random.nextInt(20) + 1;
+            if (random.nextInt(4) == 0) {
+                bounded.remove(id);
+                model.remove(id);
+            } else {
+                Task task = new Task("Task" + id, "Desc");
+                task.setId(id);
+                bounded.add(task);
+                model.remove(id);
+                model.put(id, task);
+                if (model.size() > 15) {
+                    model.remove(model.keySet().iterator().next());
+                }
+            }
+            expected.add(List.copyOf(model.keySet()));
+            published.add(bounded.getHistory());
+        }
+
+        for (int i = 0; i < published.size(); i++) {
+            List<Task> history = published.get(i);
+            assertEquals(expected.get(i), history.stream().map(Task::getId).toList(),
+                    "Опубликованная история не должна меняться после шага " + i);
+            for (int j = 0; j < history.size(); j++) {
+                assertEquals(expected.get(i).get(j), history.get(j).getId());
+            }
+        }
+    }
+
+    @Test
+    void testManagersPassHistoryBound() throws Exception {
+        TaskManager taskManager = Managers.getDefault(2);
+        for (int i = 0; i < 3; i++) {
+            taskManager.getTask(taskManager.createTask(new Task("Task" + i, "Desc")).getId());
+        }
+        assertEquals(List.of(2, 3), taskManager.getHistory().stream().map(Task::getId).toList());
+
+        java.io.File file = java.io.File.createTempFile("bounded-history", ".csv");
+        file.deleteOnExit();
+        FileBackedTaskManager fileBacked = new FileBackedTaskManager(file, SnapshotFormat.CSV,
+                Managers.getDefaultHistory(1));
+        Task task = fileBacked.createTask(new Task("Task", "Desc"));
+        Task other = fileBacked.createTask(new Task("Other", "Desc"));
+        fileBacked.getTask(task.getId());
+        fileBacked.getTask(other.getId());
+        assertEquals(List.of(other), fileBacked.getHistory());
+    }
 }
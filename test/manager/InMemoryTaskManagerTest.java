@@ -9,6 +9,11 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +35,75 @@ class InMemoryTaskManagerTest {
         assertEquals(task, manager.getTask(task.getId()));
     }
 
+    @Test
+    void peekShouldNotRecordHistory() {
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", epic.getId()));
+
+        assertEquals(task, manager.peekTask(task.getId()));
+        assertEquals(epic.getId(), manager.peekEpic(epic.getId()).getId());
+        assertEquals(subtask, manager.peekSubtask(subtask.getId()));
+        assertNull(manager.peekTask(epic.getId()));
+        assertTrue(manager.exists(subtask.getId()));
+        assertFalse(manager.exists(999));
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    @Test
+    void prioritizedWindowShouldBeHalfOpenAndLimited() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            Task task = new Task("Task" + i, "Desc");
+            task.setStartTime(start.plusHours(i));
+            task.setDuration(Duration.ofMinutes(30));
+            manager.createTask(task);
+        }
+        manager.createTask(new Task("Unscheduled", "Desc"));
+
+        List<Task> window = manager.getPrioritizedTasks(start.plusHours(2), start.plusHours(5));
+        assertEquals(3, window.size());
+        assertEquals(start.plusHours(2), window.get(0).getStartTime());
+        assertEquals(start.plusHours(4), window.get(2).getStartTime());
+
+        assertEquals(2, manager.getPrioritizedTasks(null, start.plusHours(2)).size());
+        assertEquals(10, manager.getPrioritizedTasks(null, null).size());
+        assertEquals(4, manager.getPrioritizedTasks(start.plusHours(3), null, 4).size());
+        assertTrue(manager.getPrioritizedTasks(start.plusHours(5), start.plusHours(5)).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> manager.getPrioritizedTasks(null, null, -1));
+    }
+
+    @Test
+    void autoScheduleShouldPlaceUnscheduledTasksIntoGaps() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task fixed = new Task("Fixed", "Desc");
+        fixed.setStartTime(start.plusMinutes(20));
+        fixed.setDuration(Duration.ofMinutes(60));
+        manager.createTask(fixed);
+
+        Task first = new Task("First", "Desc");
+        first.setDuration(Duration.ofMinutes(15));
+        first = manager.createTask(first);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask second = new Subtask("Second", "Desc", epic.getId());
+        second.setDuration(Duration.ofMinutes(30));
+        second = manager.createSubtask(second);
+        Task instant = manager.createTask(new Task("Instant", "Desc"));
+
+        List<Task> scheduled = manager.autoSchedule(
+                List.of(first.getId(), second.getId(), instant.getId(), epic.getId(), fixed.getId(), 999), start);
+
+        assertEquals(3, scheduled.size());
+        assertEquals(start, manager.peekTask(first.getId()).getStartTime());
+        assertEquals(start.plusMinutes(81), manager.peekSubtask(second.getId()).getStartTime());
+        assertEquals(start.plusMinutes(16), manager.peekTask(instant.getId()).getStartTime());
+        assertNull(instant.getStartTime(), "Задача из прошлого снимка не меняется");
+        assertEquals(start.plusMinutes(20), fixed.getStartTime());
+        assertEquals(start.plusMinutes(111), manager.getEpic(epic.getId()).getEndTime());
+        assertEquals(4, manager.getPrioritizedTasks().size());
+        assertEquals(start.plusMinutes(112), manager.findFreeSlot(start, Duration.ofMinutes(5)));
+    }
+
     @Test
     void createAndGetEpic() {
         Epic epic = manager.createEpic(new Epic("Epic", "Description"));
@@ -139,7 +213,7 @@ class InMemoryTaskManagerTest {
         subtask2.setStatus(TaskStatus.DONE);
         manager.updateSubtask(subtask1);
         manager.updateSubtask(subtask2);
-        assertEquals(TaskStatus.DONE, epic.getStatus());
+        assertEquals(TaskStatus.DONE, manager.peekEpic(epic.getId()).getStatus());
     }
 
     @Test
@@ -149,7 +223,7 @@ class InMemoryTaskManagerTest {
         Subtask subtask2 = manager.createSubtask(new Subtask("Sub2", "Desc", epic.getId()));
         subtask1.setStatus(TaskStatus.DONE);
         manager.updateSubtask(subtask1);
-        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(TaskStatus.IN_PROGRESS, manager.peekEpic(epic.getId()).getStatus());
     }
 
     @Test
@@ -159,7 +233,36 @@ class InMemoryTaskManagerTest {
         Subtask subtask2 = manager.createSubtask(new Subtask("Sub2", "Desc", epic.getId()));
         subtask1.setStatus(TaskStatus.IN_PROGRESS);
         manager.updateSubtask(subtask1);
-        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(TaskStatus.IN_PROGRESS, manager.peekEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+    void epicStatusCountersShouldMatchFullRecompute() {
+        InMemoryTaskManager inMemory = new InMemoryTaskManager(historyManager);
+        Epic epic = inMemory.createEpic(new Epic("Epic", "Desc"));
+        Epic other = inMemory.createEpic(new Epic("Other", "Desc"));
+        Subtask subtask1 = inMemory.createSubtask(new Subtask("Sub1", "Desc", epic.getId()));
+        Subtask subtask2 = inMemory.createSubtask(new Subtask("Sub2", "Desc", epic.getId()));
+        assertTrue(inMemory.isEpicStatusConsistent(epic.getId()));
+
+        subtask1.setStatus(TaskStatus.DONE);
+        inMemory.updateSubtask(subtask1);
+        assertTrue(inMemory.isEpicStatusConsistent(epic.getId()));
+
+        Subtask moved = new Subtask(subtask2.getId(), "Sub2", "Desc", TaskStatus.IN_PROGRESS, other.getId());
+        assertTrue(inMemory.updateSubtask(moved));
+        assertEquals(TaskStatus.DONE, inMemory.peekEpic(epic.getId()).getStatus());
+        assertEquals(TaskStatus.IN_PROGRESS, inMemory.peekEpic(other.getId()).getStatus());
+        assertTrue(inMemory.isEpicStatusConsistent(epic.getId()));
+        assertTrue(inMemory.isEpicStatusConsistent(other.getId()));
+
+        inMemory.deleteSubtask(subtask1.getId());
+        assertEquals(TaskStatus.NEW, inMemory.peekEpic(epic.getId()).getStatus());
+        assertTrue(inMemory.isEpicStatusConsistent(epic.getId()));
+
+        inMemory.deleteAllSubtasks();
+        assertEquals(TaskStatus.NEW, inMemory.peekEpic(other.getId()).getStatus());
+        assertTrue(inMemory.isEpicStatusConsistent(other.getId()));
     }
 
     // Тесты для проверки пересечения интервалов
@@ -193,6 +296,35 @@ class InMemoryTaskManagerTest {
         assertNotNull(manager.createTask(task2));
     }
 
+    @Test
+    void shouldAllowMovingTaskIntoItsOwnSlotAndRejectForeignSlot() {
+        LocalDateTime now = LocalDateTime.now();
+        Task task1 = new Task("Task1", "Desc");
+        task1.setStartTime(now);
+        task1.setDuration(Duration.ofHours(1));
+        manager.createTask(task1);
+
+        Task task2 = new Task("Task2", "Desc");
+        task2.setStartTime(now.plusHours(2));
+        task2.setDuration(Duration.ofHours(1));
+        manager.createTask(task2);
+
+        Task shifted = new Task("Task1", "Desc");
+        shifted.setId(task1.getId());
+        shifted.setStartTime(now.plusMinutes(15));
+        shifted.setDuration(Duration.ofHours(1));
+        assertTrue(manager.updateTask(shifted));
+
+        Task clashing = new Task("Task2", "Desc");
+        clashing.setId(task2.getId());
+        clashing.setStartTime(now.plusMinutes(30));
+        clashing.setDuration(Duration.ofHours(1));
+        assertFalse(manager.updateTask(clashing));
+
+        manager.deleteTask(task1.getId());
+        assertTrue(manager.updateTask(clashing));
+    }
+
     // Тесты для HistoryManager
     @Test
     void shouldReturnEmptyHistoryWhenNoTasksViewed() {
@@ -256,8 +388,265 @@ class InMemoryTaskManagerTest {
         subtask2.setDuration(Duration.ofHours(1));
         manager.createSubtask(subtask2);
 
-        assertEquals(start, epic.getStartTime());
-        assertEquals(Duration.ofHours(2), epic.getDuration()); // Сумма продолжительностей
-        assertEquals(start.plusHours(2), epic.getEndTime()); // start + duration (2 часа)
+        assertEquals(start, manager.peekEpic(epic.getId()).getStartTime());
+        assertEquals(Duration.ofHours(2), manager.peekEpic(epic.getId()).getDuration()); // Сумма продолжительностей
+        assertEquals(start.plusHours(3), manager.peekEpic(epic.getId()).getEndTime()); // Окончание последней подзадачи
+    }
+
+    @Test
+    void shouldRecalculateEpicTimeWhenSubtaskRemovedOrRetimed() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+        Subtask first = new Subtask("Sub1", "Desc", epic.getId());
+        first.setStartTime(start);
+        first.setDuration(Duration.ofHours(1));
+        manager.createSubtask(first);
+
+        Subtask last = new Subtask("Sub2", "Desc", epic.getId());
+        last.setStartTime(start.plusHours(5));
+        last.setDuration(Duration.ofHours(1));
+        manager.createSubtask(last);
+
+        Subtask middle = new Subtask("Sub3", "Desc", epic.getId());
+        middle.setStartTime(start.plusHours(2));
+        middle.setDuration(Duration.ofMinutes(30));
+        manager.createSubtask(middle);
+
+        manager.deleteSubtask(last.getId());
+        assertEquals(start, manager.peekEpic(epic.getId()).getStartTime());
+        assertEquals(start.plusMinutes(150), manager.peekEpic(epic.getId()).getEndTime());
+        assertEquals(Duration.ofMinutes(90), manager.peekEpic(epic.getId()).getDuration());
+
+        first.setStartTime(start.plusHours(3));
+        manager.updateSubtask(first);
+        assertEquals(start.plusHours(2), manager.peekEpic(epic.getId()).getStartTime());
+        assertEquals(start.plusHours(4), manager.peekEpic(epic.getId()).getEndTime());
+
+        manager.deleteSubtask(first.getId());
+        manager.deleteSubtask(middle.getId());
+        assertNull(manager.peekEpic(epic.getId()).getStartTime());
+        assertNull(manager.peekEpic(epic.getId()).getEndTime());
+        assertEquals(Duration.ZERO, manager.peekEpic(epic.getId()).getDuration());
+    }
+
+    @Test
+    void statusIndexesShouldFollowUpdatesAndDeletes() {
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Task other = manager.createTask(new Task("Other", "Desc"));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", epic.getId()));
+
+        assertEquals(List.of(task, other), manager.getTasksByStatus(TaskStatus.NEW));
+        assertEquals(List.of(manager.peekEpic(epic.getId())), manager.getEpicsByStatus(TaskStatus.NEW));
+
+        task.setStatus(TaskStatus.DONE);
+        manager.updateTask(task);
+        subtask.setStatus(TaskStatus.IN_PROGRESS);
+        manager.updateSubtask(subtask);
+
+        assertEquals(List.of(other), manager.getTasksByStatus(TaskStatus.NEW));
+        assertEquals(List.of(task), manager.getTasksByStatus(TaskStatus.DONE));
+        assertEquals(List.of(subtask), manager.getSubtasksByStatus(TaskStatus.IN_PROGRESS));
+        assertEquals(List.of(manager.peekEpic(epic.getId())), manager.getEpicsByStatus(TaskStatus.IN_PROGRESS));
+        assertTrue(manager.getEpicsByStatus(TaskStatus.NEW).isEmpty());
+
+        manager.deleteTask(other.getId());
+        manager.deleteEpic(epic.getId());
+        assertTrue(manager.getTasksByStatus(TaskStatus.NEW).isEmpty());
+        assertTrue(manager.getSubtasksByStatus(TaskStatus.IN_PROGRESS).isEmpty());
+        assertTrue(manager.getEpicsByStatus(TaskStatus.IN_PROGRESS).isEmpty());
+
+        manager.deleteAllTasks();
+        assertTrue(manager.getTasksByStatus(TaskStatus.DONE).isEmpty());
+    }
+
+    @Test
+    void searchShouldFollowUpdatesAndDeletes() {
+        Task task = manager.createTask(new Task("Отчёт", "Квартальный"));
+        Epic epic = manager.createEpic(new Epic("Релиз", "Квартальный план"));
+        Subtask subtask = manager.createSubtask(new Subtask("Сборка", "Отчёт о сборке", epic.getId()));
+
+        assertEquals(List.of(task, manager.peekEpic(epic.getId())), manager.search("квартальный"));
+        assertEquals(List.of(task, subtask), manager.search("отчёт"));
+
+        Epic renamed = new Epic("Релиз", "Годовой план");
+        renamed.setId(epic.getId());
+        manager.updateEpic(renamed);
+        assertEquals(List.of(task), manager.search("квартальный"));
+        assertEquals(List.of(manager.peekEpic(epic.getId())), manager.search("год*"));
+
+        manager.deleteEpic(epic.getId());
+        assertEquals(List.of(task), manager.search("отчёт OR релиз"));
+    }
+
+    @Test
+    void batchShouldReportResultsInOrderAndRecalculateEpics() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+        Task existing = new Task("Existing", "Desc");
+        existing.setStartTime(start);
+        existing.setDuration(Duration.ofHours(1));
+        manager.createTask(existing);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+
+        Task overlapsExisting = new Task("Overlap", "Desc");
+        overlapsExisting.setStartTime(start.plusMinutes(30));
+        overlapsExisting.setDuration(Duration.ofMinutes(10));
+        Task first = new Task("First", "Desc");
+        first.setStartTime(start.plusHours(3));
+        first.setDuration(Duration.ofHours(1));
+        Task second = new Task("Second", "Desc");
+        second.setStartTime(start.plusHours(3).plusMinutes(30));
+        second.setDuration(Duration.ofMinutes(10));
+        Subtask done = new Subtask("Done", "Desc", epic.getId());
+        done.setStatus(TaskStatus.DONE);
+        done.setStartTime(start.plusHours(5));
+        done.setDuration(Duration.ofMinutes(30));
+        Subtask pending = new Subtask("Pending", "Desc", epic.getId());
+
+        List<BatchResult> results = manager.applyBatch(List.of(
+                BatchOperation.create(overlapsExisting),
+                BatchOperation.create(first),
+                BatchOperation.create(second),
+                BatchOperation.create(done),
+                BatchOperation.create(pending),
+                BatchOperation.delete(existing.getId()),
+                BatchOperation.delete(10_000),
+                BatchOperation.create(null)));
+
+        assertEquals(List.of(BatchResult.Status.OVERLAP, BatchResult.Status.CONFLICT, BatchResult.Status.CONFLICT,
+                        BatchResult.Status.APPLIED, BatchResult.Status.APPLIED, BatchResult.Status.APPLIED,
+                        BatchResult.Status.NOT_FOUND, BatchResult.Status.INVALID),
+                results.stream().map(BatchResult::getStatus).toList());
+        assertSame(existing, results.get(5).getTask());
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertEquals(TaskStatus.IN_PROGRESS, manager.peekEpic(epic.getId()).getStatus());
+        assertEquals(start.plusHours(5), manager.peekEpic(epic.getId()).getStartTime());
+        assertTrue(((InMemoryTaskManager) manager).isEpicStatusConsistent(epic.getId()));
+        assertEquals(List.of(done), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void conflictReportShouldMatchPairwiseCheck() {
+        InMemoryTaskManager inMemory = new InMemoryTaskManager(historyManager);
+        Epic epic = inMemory.createEpic(new Epic("Epic", "Desc"));
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Task> timed = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            Task task = i % 3 == 0
+                    ? inMemory.createSubtask(new Subtask("Sub" + i, "Desc", epic.getId()))
+                    : inMemory.createTask(new Task("Task" + i, "Desc"));
+            // Пересечения создаются в обход проверки менеджера, как после ручной правки файла
+            task.setStartTime(start.plusMinutes(random.nextInt(2_000)));
+            task.setDuration(Duration.ofMinutes(random.nextInt(30)));
+            timed.add(task);
+        }
+        inMemory.createTask(new Task("Unscheduled", "Desc"));
+
+        Set<String> expected = new HashSet<>();
+        for (Task first : timed) {
+            for (Task second : timed) {
+                if (first.getId() < second.getId() && !first.getEndTime().isBefore(second.getStartTime())
+                        && !second.getEndTime().isBefore(first.getStartTime())) {
+                    expected.add(first.getId() + "-" + second.getId());
+                }
+            }
+        }
+        Set<String> actual = new HashSet<>();
+        inMemory.forEachConflict((first, second) -> {
+            assertFalse(second.getStartTime().isBefore(first.getStartTime()));
+            assertTrue(actual.add(Math.min(first.getId(), second.getId()) + "-"
+                    + Math.max(first.getId(), second.getId())));
+        });
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void publishedSnapshotShouldNotSeeLaterChanges() {
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId());
+        subtask.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+        subtask.setDuration(Duration.ofHours(1));
+        manager.createSubtask(subtask);
+
+        Epic linked = manager.peekEpic(epic.getId());
+        InMemoryTaskManager inMemory = (InMemoryTaskManager) manager;
+        TaskSnapshot before = inMemory.snapshot();
+        List<Task> history = manager.getHistory();
+        manager.getTask(task.getId());
+        manager.deleteEpic(epic.getId());
+        TaskSnapshot after = inMemory.snapshot();
+
+        assertEquals(List.of(task), before.getTasks());
+        assertEquals(List.of(linked), before.getEpics());
+        assertNotSame(epic, linked, "Эпик заменяется копией, а не меняется на месте");
+        assertTrue(epic.getSubtaskIds().isEmpty());
+        assertEquals(List.of(subtask), before.getSubtasks());
+        assertEquals(List.of(subtask), before.getPrioritizedTasks());
+        assertTrue(history.isEmpty());
+        assertTrue(after.getVersion() > before.getVersion());
+        assertTrue(after.getEpics().isEmpty());
+        assertTrue(after.getSubtasks().isEmpty());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        assertEquals(List.of(task), manager.getHistory());
+
+        assertFalse(manager.deleteTask(999));
+        assertEquals(after.getVersion(), inMemory.snapshot().getVersion(), "Без изменений версия не растёт");
+        assertThrows(UnsupportedOperationException.class, () -> manager.getAllTasks().clear());
+    }
+
+    @Test
+    void pagesShouldFollowIdOrder() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        List<Integer> taskIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            taskIds.add(manager.createTask(new Task("Task" + i, "Desc")).getId());
+            manager.createSubtask(new Subtask("Sub" + i, "Desc", epic.getId()));
+        }
+        manager.deleteTask(taskIds.get(4));
+
+        List<Task> first = manager.getTasksAfter(0, 4);
+        List<Task> second = manager.getTasksAfter(first.get(3).getId(), 4);
+        assertEquals(taskIds.subList(0, 4), first.stream().map(Task::getId).toList());
+        assertEquals(List.of(taskIds.get(5), taskIds.get(6), taskIds.get(7), taskIds.get(8)),
+                second.stream().map(Task::getId).toList());
+        assertEquals(List.of(manager.peekEpic(epic.getId())), manager.getEpicsAfter(0, 10));
+        assertEquals(10, manager.getSubtasksAfter(epic.getId(), 100).size());
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksAfter(0, -1));
+    }
+
+    @Test
+    void versionsShouldGrowOnlyForChangedCollections() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        long tasks = manager.getVersion(TaskCollection.TASKS);
+        long epics = manager.getVersion(TaskCollection.EPICS);
+        long history = manager.getVersion(TaskCollection.HISTORY);
+
+        manager.getTask(task.getId());
+        assertEquals(tasks, manager.getVersion(TaskCollection.TASKS));
+        assertTrue(manager.getVersion(TaskCollection.HISTORY) > history);
+
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId());
+        subtask.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+        subtask.setDuration(Duration.ofHours(1));
+        long prioritized = manager.getVersion(TaskCollection.PRIORITIZED);
+        manager.createSubtask(subtask);
+        assertTrue(manager.getVersion(TaskCollection.EPICS) > epics, "Время и статус эпика изменились");
+        assertTrue(manager.getVersion(TaskCollection.PRIORITIZED) > prioritized);
+        assertEquals(tasks, manager.getVersion(TaskCollection.TASKS));
+
+        epics = manager.getVersion(TaskCollection.EPICS);
+        assertTrue(manager.updateEpic(new Epic(epic.getId(), "Renamed", "Desc")));
+        assertTrue(manager.getVersion(TaskCollection.EPICS) > epics);
+
+        long subtasks = manager.getVersion(TaskCollection.SUBTASKS);
+        manager.deleteAllTasks();
+        manager.deleteAllTasks();
+        assertEquals(tasks + 1, manager.getVersion(TaskCollection.TASKS));
+        assertEquals(subtasks, manager.getVersion(TaskCollection.SUBTASKS));
     }
-}
\ No newline at end of file
+}
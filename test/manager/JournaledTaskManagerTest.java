@@ -0,0 +1,143 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournaledTaskManagerTest {
+    private File snapshot;
+    private File journal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        snapshot = File.createTempFile("kanban", ".csv");
+        snapshot.delete();
+        journal = new File(snapshot.getPath() + ".journal");
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshot.delete();
+        journal.delete();
+    }
+
+    @Test
+    void shouldAppendOneRecordPerOperation() throws IOException {
+        JournaledTaskManager manager = new JournaledTaskManager(snapshot, 1_000);
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        manager.getTask(task.getId());
+        manager.deleteTask(task.getId());
+        manager.close();
+
+        assertEquals(3, Files.readAllLines(journal.toPath()).size());
+        assertFalse(snapshot.exists());
+    }
+
+    @Test
+    void shouldRestoreStateFromJournal() {
+        JournaledTaskManager manager = new JournaledTaskManager(snapshot, 1_000);
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId());
+        subtask.setStartTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+        subtask.setDuration(Duration.ofMinutes(30));
+        manager.createSubtask(subtask);
+        subtask.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(subtask);
+        manager.getEpic(epic.getId());
+        manager.deleteTask(task.getId());
+        manager.close();
+
+        JournaledTaskManager loaded = JournaledTaskManager.loadFromFile(snapshot, 1_000);
+        assertTrue(loaded.getAllTasks().isEmpty());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epic.getId()).getStatus());
+        assertEquals(subtask.getStartTime(), loaded.getSubtask(subtask.getId()).getStartTime());
+        assertEquals(epic.getId(), loaded.getHistory().get(0).getId());
+
+        Task next = loaded.createTask(new Task("Next", "Desc"));
+        assertTrue(next.getId() > subtask.getId(), "Идентификаторы не должны повторяться после восстановления");
+        loaded.close();
+    }
+
+    @Test
+    void shouldCompactIntoSnapshotAndReplayTail() throws IOException {
+        JournaledTaskManager manager = new JournaledTaskManager(snapshot, 3);
+        manager.createTask(new Task("Task1", "Desc"));
+        manager.createTask(new Task("Task2", "Desc"));
+        manager.createTask(new Task("Task3", "Desc"));
+        manager.createTask(new Task("Task4", "Desc"));
+        manager.close();
+
+        assertTrue(Files.readString(snapshot.toPath()).contains("Task3"));
+        assertEquals(1, Files.readAllLines(journal.toPath()).size());
+
+        JournaledTaskManager loaded = JournaledTaskManager.loadFromFile(snapshot, 3);
+        assertEquals(4, loaded.getAllTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    void shouldSkipTornLastRecord() throws IOException {
+        JournaledTaskManager manager = new JournaledTaskManager(snapshot, 1_000);
+        manager.createTask(new Task("Task", "Desc"));
+        manager.close();
+        Files.writeString(journal.toPath(), "PUT,2,TA", java.nio.file.StandardOpenOption.APPEND);
+
+        JournaledTaskManager loaded = JournaledTaskManager.loadFromFile(snapshot, 1_000);
+        assertEquals(1, loaded.getAllTasks().size());
+        loaded.createTask(new Task("After crash", "Desc"));
+        loaded.close();
+
+        assertEquals(2, JournaledTaskManager.loadFromFile(snapshot, 1_000).getAllTasks().size());
+    }
+
+    @Test
+    void shouldSkipTornLastRecordThatStillParses() throws IOException {
+        JournaledTaskManager manager = new JournaledTaskManager(snapshot, 1_000);
+        Task task = manager.createTask(new Task("Task", "Description"));
+        manager.close();
+        // Обрыв внутри описания: строка разбирается, но данные в ней неполные
+        Files.writeString(journal.toPath(), "PUT," + task.getId() + ",TASK,Task,DONE,Descr",
+                java.nio.file.StandardOpenOption.APPEND);
+
+        JournaledTaskManager loaded = JournaledTaskManager.loadFromFile(snapshot, 1_000);
+        Task restored = loaded.peekTask(task.getId());
+        assertEquals("Description", restored.getDescription());
+        assertEquals(TaskStatus.NEW, restored.getStatus());
+        loaded.close();
+    }
+
+    @Test
+    void batchShouldBeJournaledAndReplayed() throws IOException {
+        JournaledTaskManager manager = new JournaledTaskManager(snapshot, 1_000);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId());
+        subtask.setStatus(TaskStatus.DONE);
+
+        manager.applyBatch(List.of(
+                BatchOperation.create(subtask),
+                BatchOperation.delete(task.getId()),
+                BatchOperation.delete(10_000)));
+        manager.close();
+
+        assertEquals(4, Files.readAllLines(journal.toPath()).size());
+        JournaledTaskManager loaded = JournaledTaskManager.loadFromFile(snapshot, 1_000);
+        assertTrue(loaded.getAllTasks().isEmpty());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epic.getId()).getStatus());
+        loaded.close();
+    }
+}
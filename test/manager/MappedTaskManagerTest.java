@@ -0,0 +1,154 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTaskManagerTest {
+    private File file;
+    private FileBackedTaskManager source;
+    private Epic epic;
+    private Subtask subtask;
+    private Task task;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("kanban", ".mapped");
+        source = new FileBackedTaskManager(file, SnapshotFormat.MAPPED);
+        epic = source.createEpic(new Epic("Эпик", "Desc"));
+        Subtask first = new Subtask("Sub1", "Desc", epic.getId());
+        first.setStartTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+        first.setDuration(Duration.ofMinutes(30));
+        subtask = source.createSubtask(first);
+        Subtask second = new Subtask("Sub2", null, epic.getId());
+        second.setStatus(TaskStatus.DONE);
+        second.setStartTime(LocalDateTime.of(2024, 1, 1, 12, 0));
+        second.setDuration(Duration.ofMinutes(15));
+        source.createSubtask(second);
+        for (int i = 0; i < 100; i++) {
+            task = source.createTask(new Task("Task" + i, "Desc"));
+        }
+        source.getTask(task.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void shouldOpenWithoutDecodingEveryTask() {
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+
+        assertInstanceOf(MappedTaskManager.class, loaded);
+        MappedTaskManager mapped = (MappedTaskManager) loaded;
+        assertFalse(mapped.isMaterialized());
+        assertEquals(1, mapped.getDecodedCount());
+        assertEquals(task.getId(), mapped.getHistory().get(0).getId());
+    }
+
+    @Test
+    void pointReadsShouldDecodeLazily() {
+        MappedTaskManager mapped = (MappedTaskManager) FileBackedTaskManager.loadFromFile(file);
+
+        Epic loadedEpic = mapped.getEpic(epic.getId());
+        assertEquals(TaskStatus.IN_PROGRESS, loadedEpic.getStatus());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 12, 15), loadedEpic.getEndTime());
+        assertEquals(2, loadedEpic.getSubtaskIds().size());
+        assertEquals(subtask, mapped.getSubtask(subtask.getId()));
+        assertNull(mapped.getTask(epic.getId()));
+        assertNull(mapped.getSubtask(10_000));
+        assertFalse(mapped.isMaterialized());
+        assertEquals(4, mapped.getDecodedCount());
+    }
+
+    @Test
+    void historyShouldBeSavedWithoutMaterializing() {
+        MappedTaskManager mapped = (MappedTaskManager) FileBackedTaskManager.loadFromFile(file);
+        mapped.getSubtask(subtask.getId());
+        assertFalse(mapped.isMaterialized());
+
+        MappedTaskManager reloaded = (MappedTaskManager) FileBackedTaskManager.loadFromFile(file);
+        assertEquals(2, reloaded.getHistory().size());
+        assertEquals(subtask.getId(), reloaded.getHistory().get(1).getId());
+        assertEquals(source.getAllTasks().size(), reloaded.getAllTasks().size());
+    }
+
+    @Test
+    void historyShouldBePatchedInPlaceWithoutRewritingRecords() throws IOException {
+        byte[] before = Files.readAllBytes(file.toPath());
+        Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+        int historyOffset = (int) ByteBuffer.wrap(before).getLong(24);
+
+        MappedTaskManager mapped = (MappedTaskManager) FileBackedTaskManager.loadFromFile(file);
+        mapped.getSubtask(subtask.getId());
+        mapped.getEpic(epic.getId());
+        mapped.getTask(task.getId());
+        assertFalse(mapped.isMaterialized());
+
+        byte[] after = Files.readAllBytes(file.toPath());
+        assertEquals(fileKey, Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey(),
+                "Файл не должен подменяться ради истории");
+        assertArrayEquals(Arrays.copyOfRange(before, 16, historyOffset), Arrays.copyOfRange(after, 16, historyOffset));
+        assertEquals(3, ByteBuffer.wrap(after).getInt(12));
+        assertEquals(historyOffset + 3 * Integer.BYTES, after.length);
+        assertEquals(List.of(subtask.getId(), epic.getId(), task.getId()),
+                FileBackedTaskManager.loadFromFile(file).getHistory().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void writesShouldMaterializeAndKeepEpicsConsistent() {
+        MappedTaskManager mapped = (MappedTaskManager) FileBackedTaskManager.loadFromFile(file);
+        Epic loadedEpic = mapped.getEpic(epic.getId());
+
+        Subtask changed = mapped.getSubtask(subtask.getId());
+        changed.setStatus(TaskStatus.DONE);
+        assertTrue(mapped.updateSubtask(changed));
+
+        assertTrue(mapped.isMaterialized());
+        Epic updatedEpic = mapped.getEpic(epic.getId());
+        assertEquals(TaskStatus.IN_PROGRESS, loadedEpic.getStatus(), "Прочитанный эпик не меняется на месте");
+        assertEquals(TaskStatus.DONE, updatedEpic.getStatus());
+        assertEquals(Duration.ofMinutes(45), updatedEpic.getDuration());
+        assertTrue(mapped.isEpicStatusConsistent(epic.getId()));
+        assertEquals(source.getPrioritizedTasks(), mapped.getPrioritizedTasks());
+
+        Task created = mapped.createTask(new Task("New", "Desc"));
+        assertEquals(source.getAllTasks().size() + 1, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+        assertTrue(created.getId() > task.getId());
+    }
+
+    @Test
+    void shouldConvertToAndFromOtherFormats() throws IOException {
+        File csv = File.createTempFile("kanban", ".csv");
+        File back = File.createTempFile("kanban", ".mapped");
+        try {
+            FileBackedTaskManager.convert(file, csv, SnapshotFormat.CSV);
+            FileBackedTaskManager.convert(csv, back, SnapshotFormat.MAPPED);
+
+            assertEquals(SnapshotFormat.MAPPED, FileBackedTaskManager.detectFormat(back));
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(back);
+            assertEquals(source.getAllSubtasks(), loaded.getAllSubtasks());
+            assertEquals(source.getEpic(epic.getId()).getEndTime(), loaded.getEpic(epic.getId()).getEndTime());
+        } finally {
+            csv.delete();
+            back.delete();
+        }
+    }
+}
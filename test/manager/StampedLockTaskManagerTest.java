@@ -0,0 +1,131 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StampedLockTaskManagerTest {
+
+    @Test
+    void shouldNotWrapThreadSafeManagers() {
+        TaskManager manager = Managers.getConcurrent(Managers.getDefault());
+        assertInstanceOf(StampedLockTaskManager.class, manager);
+        assertSame(manager, Managers.getConcurrent(manager));
+        assertSame(manager, Managers.getSynchronized(manager));
+    }
+
+    @Test
+    void shouldReturnCopiesThatLaterWritesDoNotChange() {
+        TaskManager manager = Managers.getConcurrent(Managers.getDefault());
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Epic before = manager.getEpic(epic.getId());
+        List<Epic> epics = manager.getAllEpics();
+
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId());
+        subtask.setStatus(TaskStatus.DONE);
+        manager.createSubtask(subtask);
+
+        assertTrue(before.getSubtaskIds().isEmpty());
+        assertEquals(TaskStatus.NEW, epics.get(0).getStatus());
+        assertEquals(TaskStatus.DONE, manager.peekEpic(epic.getId()).getStatus());
+        assertEquals(1, manager.peekEpic(epic.getId()).getSubtaskIds().size());
+    }
+
+    @Test
+    void listReadsShouldNotWaitForWriter() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryTaskManager delegate = new InMemoryTaskManager(Managers.getDefaultHistory()) {
+            @Override
+            public void deleteAllTasks() {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.deleteAllTasks();
+            }
+        };
+        TaskManager manager = Managers.getConcurrent(delegate);
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        manager.getTask(task.getId());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(manager::deleteAllTasks);
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            assertEquals(List.of(task), manager.getAllTasks(), "Список берётся из снимка, пока идёт запись");
+            assertEquals(List.of(task), manager.getHistory());
+            assertEquals(List.of(task), manager.getTasksAfter(0, 10));
+            assertNotSame(delegate.peekTask(task.getId()), manager.getAllTasks().get(0));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertNull(manager.peekTask(task.getId()));
+    }
+
+    @Test
+    void readsShouldStayConsistentUnderConcurrentWrites() throws InterruptedException {
+        TaskManager manager = Managers.getConcurrent(Managers.getDefault());
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 4_000; i++) {
+            int n = i;
+            executor.execute(() -> {
+                try {
+                    switch (n % 4) {
+                        case 0:
+                            Task task = manager.createTask(new Task("Task" + n, "Desc"));
+                            manager.getTask(task.getId());
+                            break;
+                        case 1:
+                            manager.createSubtask(new Subtask("Sub" + n, "Desc", epic.getId()));
+                            break;
+                        case 2:
+                            List<Task> tasks = manager.getAllTasks();
+                            assertEquals(tasks.size(), new HashSet<>(tasks).size());
+                            assertFalse(tasks.contains(null));
+                            break;
+                        default:
+                            manager.getSubtasksByEpic(epic.getId()).forEach(item -> assertNotNull(item));
+                            manager.getHistory().forEach(item -> assertNotNull(item));
+                            break;
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertNull(failure.get());
+
+        assertEquals(1_000, manager.getAllTasks().size());
+        assertEquals(1_000, manager.getSubtasksByEpic(epic.getId()).size());
+        assertEquals(1_000, manager.getHistory().size());
+        Set<Integer> ids = new HashSet<>();
+        manager.getAllTasks().forEach(task -> ids.add(task.getId()));
+        manager.getAllSubtasks().forEach(subtask -> ids.add(subtask.getId()));
+        assertEquals(2_000, ids.size(), "Идентификаторы не должны повторяться");
+    }
+}
@@ -0,0 +1,104 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SynchronizedTaskManagerTest {
+
+    @Test
+    void shouldNotWrapTwice() {
+        TaskManager manager = Managers.getSynchronized(Managers.getDefault());
+        assertSame(manager, Managers.getSynchronized(manager));
+    }
+
+    @Test
+    void shouldReturnCopiesThatLaterWritesDoNotChange() {
+        TaskManager manager = Managers.getSynchronized(Managers.getDefault());
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Epic before = manager.getEpic(epic.getId());
+        List<Epic> epics = manager.getAllEpics();
+
+        Subtask subtask = new Subtask("Sub", "Desc", epic.getId());
+        subtask.setStatus(TaskStatus.DONE);
+        manager.createSubtask(subtask);
+
+        assertTrue(before.getSubtaskIds().isEmpty());
+        assertEquals(TaskStatus.NEW, epics.get(0).getStatus());
+        assertEquals(TaskStatus.DONE, manager.peekEpic(epic.getId()).getStatus());
+        assertEquals(1, manager.peekEpic(epic.getId()).getSubtaskIds().size());
+    }
+
+    @Test
+    void conflictConsumerShouldNotBlockWriters() throws Exception {
+        TaskManager manager = Managers.getSynchronized(Managers.getDefault());
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 10, 0);
+        // Пересечение создаётся в обход проверки: сохранённый менеджером объект сдвигается снаружи
+        Task first = new Task("First", "Desc");
+        first.setStartTime(start);
+        first.setDuration(Duration.ofHours(1));
+        Task second = new Task("Second", "Desc");
+        second.setStartTime(start.plusHours(2));
+        second.setDuration(Duration.ofHours(1));
+        manager.createTask(first);
+        manager.createTask(second);
+        second.setStartTime(start.plusMinutes(30));
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        List<Integer> pairs = new java.util.ArrayList<>();
+        manager.forEachConflict((a, b) -> {
+            pairs.add(a.getId());
+            Future<Task> created = writer.submit(() -> manager.createTask(new Task("Writer", "Desc")));
+            assertDoesNotThrow(() -> created.get(5, TimeUnit.SECONDS), "Запись не должна ждать потребителя пар");
+        });
+        writer.shutdown();
+
+        assertEquals(List.of(first.getId()), pairs);
+        assertEquals(3, manager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldKeepStateConsistentUnderConcurrentWrites() throws InterruptedException {
+        TaskManager manager = Managers.getSynchronized(Managers.getDefault());
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2_000; i++) {
+            int n = i;
+            executor.execute(() -> {
+                if (n % 2 == 0) {
+                    Task task = manager.createTask(new Task("Task" + n, "Desc"));
+                    manager.getTask(task.getId());
+                } else {
+                    manager.createSubtask(new Subtask("Sub" + n, "Desc", epic.getId()));
+                    manager.getAllSubtasks();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<Task> tasks = manager.getAllTasks();
+        assertEquals(1_000, tasks.size());
+        assertEquals(1_000, manager.getSubtasksByEpic(epic.getId()).size());
+
+        Set<Integer> ids = new HashSet<>();
+        tasks.forEach(task -> ids.add(task.getId()));
+        manager.getAllSubtasks().forEach(subtask -> ids.add(subtask.getId()));
+        assertEquals(2_000, ids.size(), "Идентификаторы не должны повторяться");
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DenseIntSetTest {
+
+    @Test
+    void shouldAddRemoveAndContain() {
+        DenseIntSet set = new DenseIntSet();
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertTrue(set.add(-3));
+        assertTrue(set.contains(5));
+        assertTrue(set.remove(5));
+        assertFalse(set.remove(5));
+        assertFalse(set.contains(5));
+        assertArrayEquals(new int[]{-3}, set.toArray());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(-3));
+    }
+
+    @Test
+    void shouldMatchHashSetOnRandomOperations() {
+        DenseIntSet set = new DenseIntSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(17);
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        Set<Integer> actual = new HashSet<>();
+        set.forEach(actual::add);
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,60 @@
+package util;
+
+import model.Task;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Сравнение занимаемой памяти HashMap<Integer, Task> и IntObjectHashMap<Task> на 1M задач.
+ * Сами задачи создаются заранее и в замер не входят. Запуск: main, желательно с -Xmx2g.
+ */
+public class IntObjectHashMapBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    public static void main(String[] args) {
+        Task[] tasks = new Task[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            tasks[i] = new Task("Task" + i, "Desc");
+            tasks[i].setId(i + 1);
+        }
+
+        long before = usedMemory();
+        Map<Integer, Task> hashMap = new HashMap<>();
+        for (Task task : tasks) {
+            hashMap.put(task.getId(), task);
+        }
+        long hashMapBytes = usedMemory() - before;
+
+        before = usedMemory();
+        IntObjectHashMap<Task> intMap = new IntObjectHashMap<>();
+        for (Task task : tasks) {
+            intMap.put(task.getId(), task);
+        }
+        long intMapBytes = usedMemory() - before;
+
+        System.out.printf("HashMap: %.1f bytes/entry, IntObjectHashMap: %.1f bytes/entry%n",
+                (double) hashMapBytes / SIZE, (double) intMapBytes / SIZE);
+
+        long lookupStart = System.nanoTime();
+        long found = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int id = 1; id <= SIZE; id++) {
+                if (intMap.get(id) != null) found++;
+            }
+        }
+        System.out.printf("IntObjectHashMap lookups: %.1f ns/op (%d found)%n",
+                (System.nanoTime() - lookupStart) / (10.0 * SIZE), found);
+
+        // Удерживаем коллекции до конца замера
+        System.out.println(hashMap.size() + intMap.size() + tasks.length);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,64 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectHashMapTest {
+
+    @Test
+    void shouldPutGetAndRemove() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        assertNull(map.put(1, "one"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertTrue(map.containsKey(1));
+        assertEquals("uno", map.remove(1));
+        assertFalse(map.containsKey(1));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void shouldIterateSequentialIdsInAscendingOrder() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        for (int i = 1; i <= 100; i++) {
+            map.put(i, i);
+        }
+        List<Integer> keys = new ArrayList<>();
+        map.forEachKey(keys::add);
+        assertEquals(new ArrayList<>(map.values()), keys);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i + 1, keys.get(i));
+        }
+    }
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomOperations() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.values().iterator().hasNext());
+    }
+}
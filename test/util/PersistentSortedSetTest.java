@@ -0,0 +1,107 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentSortedSetTest {
+
+    @Test
+    void oldVersionsShouldNotChange() {
+        PersistentSortedSet<Integer> empty = PersistentSortedSet.empty(Comparator.naturalOrder());
+        PersistentSortedSet<Integer> one = empty.plus(5);
+        PersistentSortedSet<Integer> two = one.plus(3);
+        PersistentSortedSet<Integer> back = two.minus(5);
+
+        assertEquals(List.of(), empty.asList());
+        assertEquals(List.of(5), one.asList());
+        assertEquals(List.of(3, 5), two.asList());
+        assertEquals(List.of(3), back.asList());
+        assertSame(back, back.minus(42));
+        assertEquals(3, two.first());
+        assertThrows(UnsupportedOperationException.class, () -> two.asList().add(7));
+    }
+
+    @Test
+    void higherShouldReturnPageAfterElement() {
+        PersistentSortedSet<Integer> set = PersistentSortedSet.empty(Comparator.naturalOrder());
+        for (int i = 0; i < 100; i += 2) {
+            set = set.plus(i);
+        }
+        assertEquals(List.of(0, 2, 4), set.higher(-1, 3));
+        assertEquals(List.of(12, 14), set.higher(10, 2));
+        assertEquals(List.of(12, 14), set.higher(11, 2));
+        assertEquals(List.of(96, 98), set.higher(94, 10));
+        assertEquals(List.of(), set.higher(98, 10));
+        assertEquals(List.of(), set.higher(0, 0));
+    }
+
+    @Test
+    void shouldMatchTreeSetOnRandomOperations() {
+        PersistentSortedSet<Integer> set = PersistentSortedSet.empty(Comparator.naturalOrder());
+        TreeSet<Integer> expected = new TreeSet<>();
+        List<PersistentSortedSet<Integer>> versions = new ArrayList<>();
+        List<List<Integer>> contents = new ArrayList<>();
+        Random random = new Random(23);
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(1_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(value);
+                set = set.minus(value);
+            } else {
+                expected.add(value);
+                set = set.plus(value);
+            }
+            if (i % 1_000 == 0) {
+                versions.add(set);
+                contents.add(new ArrayList<>(expected));
+            }
+        }
+
+        List<Integer> list = set.asList();
+        assertEquals(new ArrayList<>(expected), list);
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < list.size(); i += 37) {
+            assertEquals(new ArrayList<>(expected).get(i), list.get(i));
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(contents.get(i), versions.get(i).asList(), "Старые версии не должны меняться");
+        }
+    }
+
+    @Test
+    void diffShouldTurnOldVersionIntoNewAndSkipSharedSubtrees() {
+        PersistentSortedSet<Integer> set = PersistentSortedSet.empty(Comparator.naturalOrder());
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            PersistentSortedSet<Integer> previous = set;
+            for (int j = random.nextInt(20); j >= 0; j--) {
+                int value = random.nextInt(2_000);
+                set = random.nextInt(3) == 0 ? set.minus(value) : set.plus(value);
+            }
+
+            Set<Integer> restored = new TreeSet<>(previous.asList());
+            set.diff(previous, restored::remove, restored::add);
+            assertEquals(set.asList(), new ArrayList<>(restored));
+        }
+        Integer first = set.first();
+        assertSame(first, set.get(first));
+        assertNull(set.get(-1));
+
+        PersistentSortedSet<Integer> large = set;
+        for (int i = 0; i < 100_000; i++) {
+            large = large.plus(i);
+        }
+        List<Integer> reported = new ArrayList<>();
+        large.plus(100_000).diff(large, removed -> fail("Ничего не удалялось"), reported::add);
+        assertTrue(reported.contains(100_000));
+        assertTrue(reported.size() < 64, "Сравниваются только перестроенные узлы: " + reported.size());
+    }
+}
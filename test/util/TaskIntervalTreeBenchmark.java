@@ -0,0 +1,86 @@
+package util;
+
+import model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Сравнение дерева интервалов с прежним перебором prioritizedTasks через stream.
+ * Запуск: main без аргументов, размеры 1k, 100k и 1M задач.
+ */
+public class TaskIntervalTreeBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int MAX_QUERIES = 2_000;
+
+    public static void main(String[] args) {
+        for (int size : new int[]{1_000, 100_000, 1_000_000}) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        Set<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime));
+        TaskIntervalTree tree = new TaskIntervalTree();
+
+        for (int i = 1; i <= size; i++) {
+            Task task = new Task("Task" + i, "Desc");
+            task.setId(i);
+            task.setStartTime(START.plusMinutes(i * 10L));
+            task.setDuration(Duration.ofMinutes(5));
+            prioritizedTasks.add(task);
+            tree.add(task);
+        }
+
+        // Перебор на 1M задач слишком медленный, поэтому число запросов уменьшается с ростом размера
+        int queries = Math.min(MAX_QUERIES, Math.max(20, 20_000_000 / size));
+        Random random = new Random(42);
+        Task[] probes = new Task[queries];
+        for (int i = 0; i < queries; i++) {
+            Task probe = new Task("Probe", "Desc");
+            probe.setId(size + i + 1);
+            probe.setStartTime(START.plusMinutes(random.nextInt(size) * 10L + random.nextInt(10)));
+            probe.setDuration(Duration.ofMinutes(3));
+            probes[i] = probe;
+        }
+
+        // Прогрев
+        scan(prioritizedTasks, probes);
+        index(tree, probes);
+
+        long scanStart = System.nanoTime();
+        int scanHits = scan(prioritizedTasks, probes);
+        long scanNanos = System.nanoTime() - scanStart;
+
+        long indexStart = System.nanoTime();
+        int indexHits = index(tree, probes);
+        long indexNanos = System.nanoTime() - indexStart;
+
+        System.out.printf("size=%,d stream=%.2f us/op tree=%.3f us/op hits=%d/%d%n",
+                size, scanNanos / 1_000.0 / queries, indexNanos / 1_000.0 / queries, scanHits, indexHits);
+    }
+
+    private static int scan(Set<Task> prioritizedTasks, Task[] probes) {
+        int hits = 0;
+        for (Task probe : probes) {
+            boolean overlaps = prioritizedTasks.stream()
+                    .filter(existing -> existing.getId() != probe.getId())
+                    .anyMatch(existing -> !(existing.getEndTime().isBefore(probe.getStartTime())
+                            || probe.getEndTime().isBefore(existing.getStartTime())));
+            if (overlaps) hits++;
+        }
+        return hits;
+    }
+
+    private static int index(TaskIntervalTree tree, Task[] probes) {
+        int hits = 0;
+        for (Task probe : probes) {
+            if (tree.hasOverlap(probe.getStartTime(), probe.getEndTime(), probe.getId())) hits++;
+        }
+        return hits;
+    }
+}
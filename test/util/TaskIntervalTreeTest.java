@@ -0,0 +1,150 @@
+package util;
+
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskIntervalTreeTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 10, 0);
+    private TaskIntervalTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new TaskIntervalTree();
+    }
+
+    private Task task(int id, int startMinutes, int durationMinutes) {
+        Task task = new Task("Task" + id, "Desc");
+        task.setId(id);
+        task.setStartTime(START.plusMinutes(startMinutes));
+        task.setDuration(Duration.ofMinutes(durationMinutes));
+        return task;
+    }
+
+    @Test
+    void shouldDetectOverlapWithStoredInterval() {
+        tree.add(task(1, 0, 60));
+
+        assertTrue(tree.hasOverlap(START.plusMinutes(30), START.plusMinutes(90), 2));
+        assertTrue(tree.hasOverlap(START.minusMinutes(30), START, 2), "Касание границ считается пересечением");
+        assertFalse(tree.hasOverlap(START.plusMinutes(61), START.plusMinutes(90), 2));
+    }
+
+    @Test
+    void shouldIgnoreExcludedId() {
+        tree.add(task(1, 0, 60));
+        assertFalse(tree.hasOverlap(START.plusMinutes(10), START.plusMinutes(20), 1));
+    }
+
+    @Test
+    void shouldRemoveByIdEvenIfTaskWasChanged() {
+        Task task = task(1, 0, 60);
+        tree.add(task);
+        task.setStartTime(START.plusDays(1));
+
+        tree.remove(1);
+
+        assertEquals(0, tree.size());
+        assertFalse(tree.hasOverlap(START, START.plusMinutes(30), 2));
+    }
+
+    @Test
+    void shouldFindLongIntervalHiddenInLeftSubtree() {
+        tree.add(task(1, 0, 1000));
+        for (int i = 2; i <= 50; i++) {
+            tree.add(task(i, 2000 + i * 10, 5));
+        }
+
+        List<Task> found = tree.findOverlapping(START.plusMinutes(900), START.plusMinutes(950));
+        assertEquals(1, found.size());
+        assertEquals(1, found.get(0).getId());
+    }
+
+    @Test
+    void shouldMatchLinearScan() {
+        for (int i = 1; i <= 200; i++) {
+            tree.add(task(i, i * 7 % 500, i % 13));
+        }
+        for (int i = 1; i <= 200; i += 3) {
+            tree.remove(i);
+        }
+
+        for (int from = 0; from < 520; from += 5) {
+            LocalDateTime qStart = START.plusMinutes(from);
+            LocalDateTime qEnd = qStart.plusMinutes(4);
+            long expected = 0;
+            for (int i = 1; i <= 200; i++) {
+                if (i % 3 == 1) continue;
+                Task t = task(i, i * 7 % 500, i % 13);
+                if (!t.getEndTime().isBefore(qStart) && !t.getStartTime().isAfter(qEnd)) expected++;
+            }
+            assertEquals(expected, tree.findOverlapping(qStart, qEnd).size());
+            assertEquals(expected > 0, tree.hasOverlap(qStart, qEnd, -1));
+        }
+    }
+
+    @Test
+    void shouldFindEarliestFreeSlot() {
+        tree.add(task(1, 0, 60));
+        tree.add(task(2, 90, 30));
+        tree.add(task(3, 125, 60));
+
+        assertEquals(START.minusHours(1), tree.findFreeSlot(START.minusHours(1), Duration.ofMinutes(30)));
+        assertEquals(START.plusMinutes(61), tree.findFreeSlot(START, Duration.ofMinutes(28)));
+        assertEquals(START.plusMinutes(186), tree.findFreeSlot(START, Duration.ofMinutes(29)));
+        assertEquals(START.plusMinutes(121), tree.findFreeSlot(START.plusMinutes(100), Duration.ofMinutes(2)));
+        assertEquals(START.plusDays(1), tree.findFreeSlot(START.plusDays(1), Duration.ofHours(5)));
+        assertThrows(IllegalArgumentException.class, () -> tree.findFreeSlot(START, Duration.ofMinutes(-1)));
+    }
+
+    @Test
+    void freeSlotShouldMatchLinearScan() {
+        for (int i = 1; i <= 300; i++) {
+            tree.add(task(i, i * 37 % 3000, i % 17));
+        }
+        for (int i = 1; i <= 300; i += 4) {
+            tree.remove(i);
+        }
+
+        for (int from = -10; from < 3100; from += 7) {
+            for (int duration : new int[]{0, 1, 5, 12, 40}) {
+                LocalDateTime notBefore = START.plusMinutes(from);
+                LocalDateTime slot = tree.findFreeSlot(notBefore, Duration.ofMinutes(duration));
+
+                assertFalse(slot.isBefore(notBefore));
+                assertFalse(tree.hasOverlap(slot, slot.plusMinutes(duration), -1), "Окно пересекается: " + slot);
+                // На минуту раньше окно либо занято, либо раньше notBefore
+                LocalDateTime earlier = slot.minusMinutes(1);
+                assertTrue(earlier.isBefore(notBefore) || tree.hasOverlap(earlier, earlier.plusMinutes(duration), -1),
+                        "Есть более раннее окно: " + earlier);
+            }
+        }
+    }
+
+    @Test
+    void taskWithoutDurationShouldOccupyItsStartTime() {
+        Task instant = new Task("Instant", "Desc");
+        instant.setId(1);
+        instant.setStartTime(START);
+        tree.add(instant);
+        tree.add(task(2, 30, 10));
+
+        assertTrue(tree.hasOverlap(START, START, -1));
+        assertEquals(START.plusMinutes(1), tree.findFreeSlot(START, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void queryWithoutEndShouldCheckItsStartTime() {
+        tree.add(task(1, 0, 120));
+
+        assertTrue(tree.hasOverlap(START.plusMinutes(60), null, 2));
+        assertEquals(1, tree.findOverlapping(START.plusMinutes(60), null).size());
+        assertFalse(tree.hasOverlap(START.plusMinutes(121), null, 2));
+    }
+}
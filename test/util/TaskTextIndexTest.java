@@ -0,0 +1,59 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskTextIndexTest {
+
+    @Test
+    void shouldTokenizeByLettersAndDigits() {
+        assertEquals(List.of("отчёт", "q3", "for", "release"), TaskTextIndex.tokenize("Отчёт Q3 — for-release!"));
+        assertTrue(TaskTextIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void shouldAnswerAndOrAndPrefixQueries() {
+        TaskTextIndex index = new TaskTextIndex();
+        index.put(1, "Квартальный отчёт", "Собрать цифры");
+        index.put(2, "Отчёт по релизу", null);
+        index.put(3, "Релиз 2.0", "Выкатить в прод");
+
+        assertArrayEquals(new int[]{1, 2}, index.search("отчёт"));
+        assertArrayEquals(new int[]{2}, index.search("ОТЧЁТ релизу"));
+        assertArrayEquals(new int[]{1, 3}, index.search("цифры OR выкатить"));
+        assertArrayEquals(new int[]{2, 3}, index.search("рел*"));
+        assertArrayEquals(new int[0], index.search("отчёт прод"));
+        assertArrayEquals(new int[0], index.search("   "));
+    }
+
+    @Test
+    void shouldReindexAndRemoveDocuments() {
+        TaskTextIndex index = new TaskTextIndex();
+        index.put(5, "Старое название", null);
+        index.put(2, "Старое", null);
+        index.put(5, "Новое название", null);
+
+        assertArrayEquals(new int[]{2}, index.search("старое"));
+        assertArrayEquals(new int[]{5}, index.search("новое"));
+
+        index.remove(2);
+        assertArrayEquals(new int[0], index.search("старое"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void intersectionShouldMatchNaiveFilter() {
+        TaskTextIndex index = new TaskTextIndex();
+        for (int id = 1; id <= 10_000; id++) {
+            index.put(id, (id % 2 == 0 ? "even " : "") + (id % 7 == 0 ? "seven" : ""), null);
+        }
+        int[] found = index.search("seven even");
+        assertEquals(10_000 / 14, found.length);
+        for (int id : found) {
+            assertEquals(0, id % 14);
+        }
+    }
+}